@@ -2,12 +2,10 @@ package GUI.Player;
 
 import GUI.TextHandler;
 import Interface.VerifiedEntity;
+import data.IntSortedMap;
 import model.Player;
 
 import javax.swing.table.AbstractTableModel;
-import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
 
 /**
  * The {@code PlayerTableModel} class is an implementation of {@code AbstractTableModel}
@@ -17,7 +15,7 @@ import java.util.TreeMap;
  */
 public class PlayerTableModel extends AbstractTableModel {
     private String[] columns_name;
-    private Object[][] data;
+    private VerifiedEntity[] data;
 
     /**
      * Constructs a {@code PlayerTableModel} object to represent a tabular model of player data.
@@ -25,32 +23,48 @@ public class PlayerTableModel extends AbstractTableModel {
      * {@code GeneralText.fetch().getOptions()} and populates the table data by
      * calling {@code parse_data}.
      *
-     * @param player_data a {@code TreeMap} mapping player IDs to their corresponding {@code Player} objects,
+     * @param player_data an {@code IntSortedMap} mapping player IDs to their corresponding {@code Player} objects,
      *                    which is used to populate the table model.
      */
-    public PlayerTableModel(TreeMap<Integer, VerifiedEntity> player_data) {
+    public PlayerTableModel(IntSortedMap<VerifiedEntity> player_data) {
         columns_name = TextHandler.fetch().getOptions("table_column");
         parse_data(player_data);
     }
 
     /**
-     * Populates the {@code data} variable with player information from the given {@code TreeMap}.
-     * Each player's ID and corresponding {@code Player} object are transferred into a two-dimensional array,
-     * where the first column stores the player IDs and the second column stores the {@code Player} objects.
+     * Populates the {@code data} variable with player information from the given {@code IntSortedMap}.
+     * The players are copied in ascending ID order into an array holding one row per player; the ID
+     * column is read from the player itself, so no boxed key is kept per row.
      *
-     * @param player_data a {@code TreeMap} containing player IDs as keys and their corresponding
+     * @param player_data an {@code IntSortedMap} containing player IDs as keys and their corresponding
      *                    {@code Player} objects as values. This map is used to populate the
      *                    {@code data} array for further use in the table model.
      */
-    private void parse_data(TreeMap<Integer, VerifiedEntity> player_data){
-        this.data = new Object[player_data.size()][2];
-        int rowIndex = 0;
-        Set<Map.Entry<Integer, VerifiedEntity>> entrySet = player_data.entrySet();
-        for (Map.Entry<Integer, VerifiedEntity> entry : entrySet) {
-            data[rowIndex][0] = entry.getKey();
-            data[rowIndex][1] = entry.getValue();
-            rowIndex++;
+    private void parse_data(IntSortedMap<VerifiedEntity> player_data){
+        this.data = player_data.valuesArray(new VerifiedEntity[player_data.size()]);
+    }
+
+    /**
+     * Locates the row of a player. Rows are sorted by ID, so this is a binary search.
+     *
+     * @param id the ID of the player
+     * @return the row index, or {@code -1} if the player is not in the table
+     */
+    public int rowOf(int id) {
+        int low = 0;
+        int high = data.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = data[middle].getID();
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
         }
+        return -1;
     }
 
     @Override
@@ -83,7 +97,7 @@ public class PlayerTableModel extends AbstractTableModel {
      */
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        Player player = (Player) data[rowIndex][1];
+        Player player = (Player) data[rowIndex];
         return switch (columnIndex){
             case 0 -> player.getID();
             case 1 -> player.getRegion();
@@ -104,11 +118,11 @@ public class PlayerTableModel extends AbstractTableModel {
      * to process the provided player data and then triggers {@code fireTableDataChanged}
      * to refresh the table view.
      *
-     * @param player_data a {@code TreeMap} containing player IDs as keys and their corresponding
+     * @param player_data an {@code IntSortedMap} containing player IDs as keys and their corresponding
      *                    {@code Player} objects as values. This map is used to update the
      *                    table model data for display.
      */
-    public void update_data(TreeMap<Integer, VerifiedEntity> player_data) {
+    public void update_data(IntSortedMap<VerifiedEntity> player_data) {
         parse_data(player_data);
         fireTableDataChanged();
     }
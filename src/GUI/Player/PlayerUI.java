@@ -7,6 +7,7 @@ import Interface.EventListener;
 import Interface.GeneralUI;
 import Interface.VerifiedEntity;
 import control.PlayerControl;
+import data.IntSortedMap;
 
 import javax.swing.*;
 import javax.swing.text.BadLocationException;
@@ -17,7 +18,6 @@ import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.util.HashMap;
-import java.util.TreeMap;
 import java.util.function.Consumer;
 
 /**
@@ -31,7 +31,7 @@ import java.util.function.Consumer;
  * It connects to player-specific logic through {@code PlayerControl} to execute commands
  * such as adding, modifying, exporting, or deleting player data.
  */
-public class PlayerUI implements GeneralUI, EventListener<TreeMap<Integer, VerifiedEntity>> {
+public class PlayerUI implements GeneralUI, EventListener<IntSortedMap<VerifiedEntity>> {
     private final PlayerControl playerControl;
     private JTable table_data;
 
@@ -52,7 +52,7 @@ public class PlayerUI implements GeneralUI, EventListener<TreeMap<Integer, Verif
     private PlayerTableModel tableModel;
     private int selected_player_id;
 
-    private final HashMap<String, Consumer<TreeMap<Integer, VerifiedEntity>>> eventWithMapHandler = new HashMap<>();
+    private final HashMap<String, Consumer<IntSortedMap<VerifiedEntity>>> eventWithMapHandler = new HashMap<>();
     private final HashMap<String, Runnable> eventWithoutDataHandler = new HashMap<>();
     private final StyledDocument log_document;
 
@@ -62,7 +62,7 @@ public class PlayerUI implements GeneralUI, EventListener<TreeMap<Integer, Verif
     }
 
     private void initialize(){
-        tableModel = new PlayerTableModel(new TreeMap<>());
+        tableModel = new PlayerTableModel(new IntSortedMap<>());
         table_data.setModel(tableModel);
         table_data.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         scroll_data.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
@@ -112,15 +112,15 @@ public class PlayerUI implements GeneralUI, EventListener<TreeMap<Integer, Verif
 
     /**
      * Refreshes the table model and updates the table display with the provided player data.
-     * This method processes the given {@code TreeMap} containing player information
+     * This method processes the given {@code IntSortedMap} containing player information
      * and updates the associated table model by invoking {@code tableModel.update_data}.
      * The table view is refreshed by setting the updated model.
      *
-     * @param playerMap an {@code Object} expected to be a {@code TreeMap<Integer, Player>}
+     * @param playerMap an {@code IntSortedMap<VerifiedEntity>}
      *               containing player IDs as keys and their corresponding {@code Player} objects as values.
      *               This map is used to update the table model data.
      */
-    private void refresh(TreeMap<Integer, VerifiedEntity> playerMap) {
+    private void refresh(IntSortedMap<VerifiedEntity> playerMap) {
         tableModel.update_data(playerMap);
         onLog(LogStage.PASS, "refresh_pass");
     }
@@ -132,11 +132,11 @@ public class PlayerUI implements GeneralUI, EventListener<TreeMap<Integer, Verif
      * <p>
      * When the text in the search field changes, the {@code SearchListener} is triggered
      * to execute its {@code update()} method. The method retrieves the search key
-     * from the text field and scans the table model to find matching rows.
-     * <p>
-     * The search operates on the first column of the table model:
-     * - If a match is found, the corresponding row is selected, and the table scrolls
-     *   to bring the row into view using {@code table_data.scrollRectToVisible()}.
+     * from the text field and asks {@code PlayerControl.findSearchMatch} for the matching
+     * player: the lowest ID containing the typed digits, or else the lowest ID among the players
+     * whose name starts with the key, found through the name index of the data access object:
+     * - If a match is found, its row is located with {@code tableModel.rowOf}, selected, and the
+     *   table scrolls to bring the row into view using {@code table_data.scrollRectToVisible()}.
      * - If no match is found or the search input is empty, the table's selection is cleared.
      * <p>
      * This method ensures smooth user interaction for searching and locating entries
@@ -144,9 +144,8 @@ public class PlayerUI implements GeneralUI, EventListener<TreeMap<Integer, Verif
      * <p>
      * Internally calls:
      * - {@code SearchListener.update()} for detecting changes in the search field.
-     * - {@code tableModel.getRowCount()} to iterate through all rows.
-     * - {@code tableModel.getValueAt(int rowIndex, int columnIndex)} to retrieve values
-     *   from the first column for comparison.
+     * - {@code PlayerControl.findSearchMatch(String searchKey)} to find the matching player.
+     * - {@code tableModel.rowOf(int id)} to locate the row of that player.
      * - {@code table_data.setRowSelectionInterval(int index0, int index1)} to highlight
      *   matched rows in the table.
      * - {@code table_data.scrollRectToVisible(Rectangle aRect)} to scroll the view to the visible area of the selected row.
@@ -156,17 +155,12 @@ public class PlayerUI implements GeneralUI, EventListener<TreeMap<Integer, Verif
         field_search.getDocument().addDocumentListener(new SearchListener() {
             @Override
             public void update() {
-                String searchKey = field_search.getText();
-                if (!searchKey.isEmpty()) {
-                    for (int i = 0; i < tableModel.getRowCount(); i++) {
-                        if (tableModel.getValueAt(i, 0).toString().contains(searchKey)) {
-                            table_data.setRowSelectionInterval(i, i);
-                            table_data.scrollRectToVisible(table_data.getCellRect(i, 0, true));
-                            break;
-                        }else{
-                            table_data.clearSelection();
-                        }
-                    }
+                String searchKey = field_search.getText().strip();
+                Integer id = searchKey.isEmpty() ? null : playerControl.findSearchMatch(searchKey);
+                int row = id == null ? -1 : tableModel.rowOf(id);
+                if (row >= 0) {
+                    table_data.setRowSelectionInterval(row, row);
+                    table_data.scrollRectToVisible(table_data.getCellRect(row, 0, true));
                 } else {
                     table_data.clearSelection();
                 }
@@ -247,7 +241,7 @@ public class PlayerUI implements GeneralUI, EventListener<TreeMap<Integer, Verif
      *             updated player data for refreshing the table view.
      */
     @Override
-    public void onEvent(String event, TreeMap<Integer,VerifiedEntity> data) {
+    public void onEvent(String event, IntSortedMap<VerifiedEntity> data) {
         if(eventWithMapHandler.containsKey(event)){
             eventWithMapHandler.get(event).accept(data);
         } else if (eventWithoutDataHandler.containsKey(event)) {
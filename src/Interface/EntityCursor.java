@@ -0,0 +1,32 @@
+package Interface;
+
+import java.util.Iterator;
+
+/**
+ * Forward-only iterator over entities read from a data source. The cursor holds the
+ * underlying resource (result set, database cursor, file reader...) open until it is closed,
+ * so it must always be used in a try-with-resources block.
+ * @author SIN
+ */
+public interface EntityCursor<T> extends Iterator<T>, AutoCloseable {
+    @Override
+    void close();
+
+    static <T> EntityCursor<T> of(Iterator<T> iterator) {
+        return new EntityCursor<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
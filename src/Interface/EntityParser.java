@@ -1,5 +1,7 @@
 package Interface;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.TreeMap;
 
 /**
@@ -8,5 +10,8 @@ import java.util.TreeMap;
 public interface EntityParser {
     ParserCallBack<?, TreeMap<Integer, VerifiedEntity>> parseAll(Object dataType);
     ParserCallBack<?, VerifiedEntity> serializeOne(Object dataType);
-    ParserCallBack<?, TreeMap<Integer, VerifiedEntity>> serializeAll(Object dataType);
+    ParserCallBack<?, Map<Integer, VerifiedEntity>> serializeAll(Object dataType);
+    ParserCallBack<?, HashMap<Integer, Long>> parseFingerprints(Object dataType);
+    long fingerprint(VerifiedEntity entity);
+    VerifiedEntity reference(int id);
 }
@@ -1,6 +1,6 @@
 package Interface;
 
-import java.util.TreeMap;
+import data.IntSortedMap;
 
 /**
  * @author SIN
@@ -18,5 +18,5 @@ public interface ExceptionHandler {
 
     <T> T handle(ExceptionWithReturn<T> function, String className, String... textSubType);
     void handle(ExceptionWithoutReturn function, String className, String... textSubType);
-    void addListener(EventListener<TreeMap<Integer, VerifiedEntity>> listener);
+    void addListener(EventListener<IntSortedMap<VerifiedEntity>> listener);
 }
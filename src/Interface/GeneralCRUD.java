@@ -2,12 +2,53 @@ package Interface;
 
 import data.DataOperation;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.TreeMap;
+
 /**
  * @author SIN
  */
 public interface GeneralCRUD<T> {
     GeneralCRUD<T> prepare();
     void release();
+
+    /**
+     * Tells whether one instance may serve several operations in a row. Only a CRUD whose {@code prepare()}
+     * derives the same settings from its {@code DataInfo} every time, and which holds no connection,
+     * context or parsing state of its own between operations, may return {@code true}.
+     */
+    default boolean isReusable(){
+        return false;
+    }
     <R,U> GeneralCRUD<T> read(ParserCallBack<R,U> parser, DataOperation operation, U dataMap);
     <R,U> GeneralCRUD<T> update(ParserCallBack<R,U> parser, DataOperation operation, U object);
+
+    /**
+     * Reads the ID and fingerprint of every row. Backends able to select only the fingerprinted fields
+     * override this with a projection; the default reads the rows with {@code read}.
+     */
+    default <R> GeneralCRUD<T> readFingerprints(ParserCallBack<R, HashMap<Integer, Long>> parser, HashMap<Integer, Long> fingerprints){
+        return read(parser, DataOperation.READ, fingerprints);
+    }
+
+    /**
+     * Applies the same operation to every object of the collection. Backends able to group
+     * writes override this with a native batch; the default falls back to one {@code update} per object.
+     */
+    default <R,U> GeneralCRUD<T> updateBatch(ParserCallBack<R,U> parser, DataOperation operation, Collection<U> objects){
+        objects.forEach(object -> update(parser, operation, object));
+        return this;
+    }
+
+    /**
+     * Opens a cursor over every entity of the data source. Backends able to stream their rows
+     * override this so only the current row is held in memory; the default reads everything
+     * with {@code read} and iterates over the result.
+     */
+    default <R> EntityCursor<VerifiedEntity> cursor(ParserCallBack<R, TreeMap<Integer, VerifiedEntity>> parser){
+        TreeMap<Integer, VerifiedEntity> dataMap = new TreeMap<>();
+        read(parser, DataOperation.READ, dataMap);
+        return EntityCursor.of(dataMap.values().iterator());
+    }
 }
@@ -11,7 +11,15 @@ import Interface.ExceptionHandler;
 import Interface.GeneralControl;
 import Interface.VerifiedEntity;
 import data.*;
+import data.database.BaseXContextPool;
+import data.database.ConnectionPool;
+import data.database.EntityManagerFactoryRegistry;
+import data.database.MongoClientRegistry;
+import data.database.SessionFactoryRegistry;
+import data.file.ChangeJournal;
 import data.file.FileType;
+import data.file.FileWriteBehind;
+import data.http.ApiRequests;
 import data.http.PhpType;
 import exceptions.OperationCancelledException;
 import exceptions.PlayerExceptionHandler;
@@ -20,7 +28,6 @@ import model.Player;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.TreeMap;
 
 /**
  * The PlayerControl class is responsible for managing the core functionalities of the Player UI,
@@ -36,7 +43,7 @@ import java.util.TreeMap;
 public class PlayerControl implements GeneralControl {
     private PlayerDAO playerDA;
     private ExceptionHandler exceptionHandler;
-    private final List<EventListener<TreeMap<Integer, VerifiedEntity>>> listeners = new ArrayList<>();
+    private final List<EventListener<IntSortedMap<VerifiedEntity>>> listeners = new ArrayList<>();
 
     @Override
     public GeneralControl initialize() {
@@ -75,14 +82,30 @@ public class PlayerControl implements GeneralControl {
      * <p>
      * Implementation details:
      * - Logs a debug message indicating the initiation of the window closing procedure.
-     * - Invokes the `save` method to persist any pending data or state before termination.
-     * - Logs an informational message indicating the application shutdown process.
-     * - Calls `System.exit(0)` to terminate the application with an exit status of 0.
+     * - Invokes the `save` method to persist any pending data or state before termination, and waits
+     *   for the background compaction of the file change journals and the queued write-behind file writes.
+     * - Closes the pooled database connections and contexts, the shared Hibernate and ObjectDB factories,
+     *   the Mongo clients and the keep-alive HTTP connections.
+     * - Every step runs through the exception handler, so a failing step is reported and the others still run.
+     * - Calls `System.exit(0)` to terminate the application with an exit status of 0, whatever happened before.
      */
     @Override
     public void onWindowClosing() {
-        saveToFile();
-        System.exit(0);
+        try {
+            saveToFile();
+            exceptionHandler.handle(() -> {
+                ChangeJournal.awaitAll();
+                FileWriteBehind.flush();
+            }, "PlayerControl-onWindowClosing()", "save");
+            exceptionHandler.handle(ConnectionPool::closeAll, "PlayerControl-onWindowClosing()", "shutdown", "ConnectionPool");
+            exceptionHandler.handle(SessionFactoryRegistry::closeAll, "PlayerControl-onWindowClosing()", "shutdown", "Hibernate");
+            exceptionHandler.handle(EntityManagerFactoryRegistry::closeAll, "PlayerControl-onWindowClosing()", "shutdown", "ObjectDB");
+            exceptionHandler.handle(MongoClientRegistry::closeAll, "PlayerControl-onWindowClosing()", "shutdown", "MongoDB");
+            exceptionHandler.handle(BaseXContextPool::closeAll, "PlayerControl-onWindowClosing()", "shutdown", "BaseX");
+            exceptionHandler.handle(ApiRequests::shutdown, "PlayerControl-onWindowClosing()", "shutdown", "HTTP");
+        } finally {
+            System.exit(0);
+        }
     }
 
     /**
@@ -105,6 +128,7 @@ public class PlayerControl implements GeneralControl {
     private void handleDataSourceForCreateFile(DataInfo dataInfo) {
         exceptionHandler.handle(() -> {
                     dataInfo.setUrl(GeneralDAO.newPathBuilder((FileType) dataInfo.getDataType()));
+                    dataInfo.setFileCompression(GeneralDAO.chooseCompression());
                     playerDA.createNewFile(dataInfo.getUrl());
                     playerDA.setDataInfo(dataInfo);
                     notifyEvent("dataSource_set",null);
@@ -168,12 +192,20 @@ public class PlayerControl implements GeneralControl {
     }
 
     public void search() {
-        new DataSourceChooser(new DataInfo(DataSource.NONE), this::handleDataSourceForSearch);
+        saveToFile();
+        new DataSourceChooser(new DataInfo(), this::handleDataSourceForSearch);
     }
 
     private void handleDataSourceForSearch(DataInfo dataInfo){
         notifyEvent("dataSource_set",null);
         switch(dataInfo.getDataType()){
+            case FileType ignore :
+                String file_path = exceptionHandler.handle(() -> GeneralDAO.getPath((FileType) dataInfo.getDataType()), "GeneralDataAccess-getPath()", "getPath");
+                if(file_path != null){
+                    dataInfo.setUrl(file_path);
+                    searchID(dataInfo);
+                }
+                break;
             case DataSource.DATABASE, DataSource.HIBERNATE, DataSource.OBJECTDB, DataSource.BASEX, DataSource.MONGO :
                 exceptionHandler.handle(() -> new DatabaseLogin(playerDA.getDefaultDatabaseInfo(dataInfo), this::searchID),
                         "PlayerControl-searchDB()", "default_database");
@@ -262,6 +294,24 @@ public class PlayerControl implements GeneralControl {
                 },"PlayerControl-delete()", "deletePlayer", ">>>ID: " + selected_player_id);
     }
 
+    /**
+     * Finds the player the search box refers to. As before, a key made of digits selects the lowest
+     * ID containing those digits; any other key, or digits no ID contains, selects the lowest ID among
+     * the players whose name starts with the key, ignoring case, through the name index.
+     *
+     * @param searchKey the text typed in the search box
+     * @return the ID of the matching player, or {@code null} if there is none
+     */
+    public Integer findSearchMatch(String searchKey) {
+        if(searchKey.chars().allMatch(Character::isDigit)){
+            Integer id = playerDA.findLowestIdContaining(searchKey);
+            if(id != null){
+                return id;
+            }
+        }
+        return playerDA.findLowestIdByNamePrefix(searchKey);
+    }
+
     /**
      * Initiates the export process for player data. This method performs a series of checks and operations
      * to ensure that the necessary data is available and to prompt the user for a data export location.
@@ -376,7 +426,7 @@ public class PlayerControl implements GeneralControl {
      * @param listener the event listener to be added. It must implement the EventListener interface
      *                 and handle events related to a SortedMap with any key-value pair types.
      */
-    public void addListener(EventListener<TreeMap<Integer, VerifiedEntity>> listener){
+    public void addListener(EventListener<IntSortedMap<VerifiedEntity>> listener){
         listeners.add(listener);
     }
 
@@ -387,7 +437,7 @@ public class PlayerControl implements GeneralControl {
      * @param event the name or identifier of the event to notify about
      * @param data the data associated with the event, passed as a {@code SortedMap} object
      */
-    private void notifyEvent(String event, TreeMap<Integer, VerifiedEntity> data){
+    private void notifyEvent(String event, IntSortedMap<VerifiedEntity> data){
         listeners.forEach(listener -> listener.onEvent(event, data));
     }
 
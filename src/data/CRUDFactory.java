@@ -4,7 +4,9 @@ import Interface.GeneralCRUD;
 import exceptions.OperationException;
 import model.DataInfo;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -13,34 +15,84 @@ import java.util.function.Function;
 import static main.principal.getProperty;
 
 /**
+ * Creates the {@code GeneralCRUD} matching the data type of a {@code DataInfo}.
+ * <p>
+ * Every entry of {@code supportedCRUD} is resolved once, when the class is loaded, into a
+ * constructor {@code MethodHandle}, so no reflection lookup happens on the per-operation path.
+ * When {@code reuseCRUD} is enabled, the last instance created for each data type on the calling thread
+ * is handed out again as long as it is requested with the same {@code DataInfo}. Only CRUDs reporting
+ * {@code isReusable()} are kept; CRUDs holding a connection, a context or parsing state are always
+ * created anew.
  * @author SIN
  */
 public class CRUDFactory {
-    private final static HashMap<String, Function<DataInfo, GeneralCRUD<DataInfo>>> CRUD_INSTANCES = new HashMap<>();
+    private final static HashMap<String, Function<DataInfo, GeneralCRUD<DataInfo>>> CRUD_CONSTRUCTORS = new HashMap<>();
+    private final static ThreadLocal<HashMap<String, CachedCRUD>> CRUD_INSTANCES = ThreadLocal.withInitial(HashMap::new);
+    private final static MethodType CONSTRUCTOR_TYPE = MethodType.methodType(GeneralCRUD.class, DataInfo.class);
+    private final static boolean REUSE_CRUD = Boolean.parseBoolean(getProperty("reuseCRUD"));
+
+    private record CachedCRUD(DataInfo dataInfo, GeneralCRUD<DataInfo> crud) {
+    }
 
     static {
         initializeCRUD();
     }
 
-    @SuppressWarnings("unchecked")
     private static void initializeCRUD() {
         List<String> supportedCRUD = Arrays.asList(getProperty("supportedCRUD").split(","));
-        supportedCRUD.forEach(dataType -> CRUD_INSTANCES.put(dataType, (dataInfo) ->{
-            try {
-                Class<?> tempClass = Class.forName("data.%s".formatted(getProperty(dataType)));
-                if(GeneralCRUD.class.isAssignableFrom(tempClass)){
-                    return (GeneralCRUD<DataInfo>) tempClass.getDeclaredConstructor(DataInfo.class).newInstance(dataInfo);
-                }
-                throw new OperationException("Unsupported CRUD type: " + dataType);
-            } catch (ClassNotFoundException | NoSuchMethodException | InvocationTargetException | InstantiationException |
-                     IllegalAccessException e) {
+        supportedCRUD.forEach(dataType -> CRUD_CONSTRUCTORS.put(dataType, resolveConstructor(dataType)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<DataInfo, GeneralCRUD<DataInfo>> resolveConstructor(String dataType) {
+        MethodHandle constructor;
+        try {
+            Class<?> tempClass = Class.forName("data.%s".formatted(getProperty(dataType)));
+            if(!GeneralCRUD.class.isAssignableFrom(tempClass)){
+                return _ -> {
+                    throw new OperationException("Unsupported CRUD type: " + dataType);
+                };
+            }
+            constructor = MethodHandles.publicLookup()
+                    .findConstructor(tempClass, MethodType.methodType(void.class, DataInfo.class))
+                    .asType(CONSTRUCTOR_TYPE);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            return _ -> {
                 throw new OperationException("%sCRUD could not be instantiated".formatted(dataType));
+            };
+        }
+        return dataInfo -> {
+            try {
+                return (GeneralCRUD<DataInfo>) constructor.invokeExact(dataInfo);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new OperationException("%sCRUD could not be instantiated".formatted(dataType), e);
             }
-        }));
+        };
     }
 
     public static GeneralCRUD<DataInfo> getCRUD(DataInfo dataInfo) {
-        return CRUD_INSTANCES.get(dataInfo.getDataType().toString()).apply(dataInfo);
+        String dataType = dataInfo.getDataType().toString();
+        Function<DataInfo, GeneralCRUD<DataInfo>> constructor = CRUD_CONSTRUCTORS.get(dataType);
+        if(constructor == null){
+            throw new OperationException("Unsupported CRUD type: " + dataType);
+        }
+        if(!REUSE_CRUD){
+            return constructor.apply(dataInfo);
+        }
+        HashMap<String, CachedCRUD> instances = CRUD_INSTANCES.get();
+        CachedCRUD cached = instances.get(dataType);
+        if(cached != null && cached.dataInfo() == dataInfo){
+            return cached.crud();
+        }
+        GeneralCRUD<DataInfo> crud = constructor.apply(dataInfo);
+        if(crud.isReusable()){
+            instances.put(dataType, new CachedCRUD(dataInfo, crud));
+        }else{
+            instances.remove(dataType);
+        }
+        return crud;
     }
 
 
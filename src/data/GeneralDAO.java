@@ -1,11 +1,16 @@
 package data;
 
 import GUI.TextHandler;
+import Interface.EntityCursor;
 import Interface.EntityParser;
 import Interface.GeneralCRUD;
+import Interface.ParserCallBack;
 import Interface.VerifiedEntity;
+import data.file.ChangeJournal;
+import data.file.FileCompression;
 import data.file.FileType;
 import exceptions.ConfigErrorException;
+import exceptions.DataCorruptedException;
 import exceptions.FileManageException;
 import exceptions.OperationCancelledException;
 import exceptions.OperationException;
@@ -15,7 +20,14 @@ import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.TreeMap;
 
 import static main.principal.getProperty;
@@ -31,13 +43,36 @@ import static main.principal.getProperty;
 public abstract class GeneralDAO {
     protected EntityParser entityParser;
     protected DataInfo dataInfo = new DataInfo();
-    protected TreeMap<Integer, VerifiedEntity> dataContainer = new TreeMap<>();
+    protected IntSortedMap<VerifiedEntity> dataContainer = new IntSortedMap<>();
     protected boolean isSaveToFileNeeded = false;
+    private HashSet<Integer> searchedIds;
     protected int limit;
 
-    protected abstract void isEntityValid(VerifiedEntity entity);
+    /**
+     * Checks an entity without throwing, so that it can run in tight loops over large imports.
+     * It is called from several fork-join threads at once and must not modify shared state.
+     *
+     * @return why the entity is invalid, or {@code null} if it is valid
+     */
+    protected abstract String findInvalidReason(VerifiedEntity entity);
     public abstract DataInfo getDefaultDatabaseInfo(DataInfo dataInfo) throws ConfigErrorException;
 
+    /**
+     * Called after one entity of the data container was added, modified or deleted, so that subclasses
+     * can keep derived structures such as secondary indexes up to date.
+     *
+     * @param previous the entity replaced or removed, {@code null} for an addition
+     * @param current the entity now stored, {@code null} for a deletion
+     */
+    protected void onEntityChanged(VerifiedEntity previous, VerifiedEntity current) {
+    }
+
+    /**
+     * Called after the content of the data container was replaced or cleared as a whole.
+     */
+    protected void onDataReplaced() {
+    }
+
     public GeneralDAO(EntityParser entityParser) {
         this.entityParser = entityParser;
         limit = Integer.parseInt(getProperty("dataLimit"));
@@ -46,46 +81,124 @@ public abstract class GeneralDAO {
     public void findById(){
         int id = Integer.parseInt(JOptionPane.showInputDialog(null, TextHandler.fetch().getText("input_id_ongoing")));
         dataContainer.clear();
-        dataContainer.put(id, null);
-        CRUDFactory.getCRUD(dataInfo)
-                .prepare()
-                .read(entityParser.parseAll(dataInfo.getDataType()), DataOperation.SEARCH, dataContainer)
-                .release();
-        if(dataContainer.get(id) != null){
-            validateAllData(dataContainer);
+        onDataReplaced();
+        searchedIds = new HashSet<>(Set.of(id));
+        TreeMap<Integer, VerifiedEntity> searchContainer = new TreeMap<>();
+        searchContainer.put(id, null);
+        ChangeJournal journal = journal();
+        if(journal != null){
+            journal.awaitCompaction();
+        }
+        GeneralCRUD<DataInfo> currentCRUD = CRUDFactory.getCRUD(dataInfo);
+        try {
+            currentCRUD.prepare().read(entityParser.parseAll(dataInfo.getDataType()), DataOperation.SEARCH, searchContainer);
+        } finally {
+            currentCRUD.release();
+        }
+        if(journal != null){
+            journal.replay(searchContainer, Set.of(id));
+        }
+        if(searchContainer.get(id) != null){
+            dataContainer.put(id, searchContainer.get(id));
+            onDataReplaced();
+            ValidationReport report = validateAllData(dataContainer);
+            if(!report.isValid()){
+                throw new DataCorruptedException(report);
+            }
         }else{
             throw new OperationException("ID not found");
         }
     }
 
+    /**
+     * Reads every entity of the current data source through a cursor and replaces the data container
+     * with the result once the whole batch is valid. For a journaled file, the pending changes of its
+     * {@code ChangeJournal} are applied on top. The batch is validated in parallel and every invalid
+     * entity is reported, not only the first one.
+     *
+     * @throws DataCorruptedException carrying the {@code ValidationReport} of the batch if any entity is invalid
+     */
     public void findAll() {
         dataContainer.clear();
-        TreeMap<Integer, VerifiedEntity> tempContainer = new TreeMap<>();
+        onDataReplaced();
+        searchedIds = null;
+        IntSortedMap<VerifiedEntity> tempContainer = new IntSortedMap<>();
         try {
-            CRUDFactory.getCRUD(dataInfo)
-                    .prepare()
-                    .read(entityParser.parseAll(dataInfo.getDataType()), DataOperation.READ, tempContainer)
-                    .release();
-            if(!tempContainer.isEmpty()){
-                validateAllData(tempContainer);
-                dataContainer.putAll(tempContainer);
+            ChangeJournal journal = journal();
+            if(journal != null){
+                journal.awaitCompaction();
+            }
+            GeneralCRUD<DataInfo> currentCRUD = CRUDFactory.getCRUD(dataInfo);
+            try(EntityCursor<VerifiedEntity> cursor = currentCRUD.prepare().cursor(entityParser.parseAll(dataInfo.getDataType()))){
+                while(cursor.hasNext()){
+                    VerifiedEntity verifiedEntity = cursor.next();
+                    tempContainer.put(verifiedEntity.getID(), verifiedEntity);
+                }
+            } finally {
+                currentCRUD.release();
+            }
+            if(journal != null){
+                journal.replay(tempContainer, null);
+            }
+            ValidationReport report = validateAllData(tempContainer);
+            if(!report.isValid()){
+                throw new DataCorruptedException(report);
             }
+            dataContainer = tempContainer;
+            onDataReplaced();
+        } catch (DataCorruptedException e) {
+            dataInfo = new DataInfo();
+            throw e;
         } catch (Exception e) {
             dataInfo = new DataInfo();
             throw new OperationException(e.getMessage());
         }
     }
 
+    /**
+     * Saves the data of a file source. With the change journal enabled, every change is already on disk
+     * and saving only schedules the background compaction of the journal into the file; otherwise the
+     * whole file is rewritten. When the data container only holds the result of {@code findById}, the
+     * searched and changed entities are merged into the content of the file instead of replacing it.
+     */
     public void saveAllToFile(){
-        if (Objects.requireNonNull(dataInfo.getDataType()) instanceof FileType) {
+        ChangeJournal journal = journal();
+        if(journal != null){
+            journal.compactInBackground();
+            isSaveToFileNeeded = false;
+        }else if (Objects.requireNonNull(dataInfo.getDataType()) instanceof FileType) {
+            Map<Integer, VerifiedEntity> fileContent = searchedIds == null ? dataContainer : mergeIntoFileContent();
             CRUDFactory.getCRUD(dataInfo)
                     .prepare()
-                    .update(entityParser.serializeAll(dataInfo.getDataType()), null, dataContainer)
+                    .update(entityParser.serializeAll(dataInfo.getDataType()), null, fileContent)
                     .release();
             isSaveToFileNeeded = false;
         }
     }
 
+    /**
+     * Reads the whole file and applies the entities searched or changed since {@code findById} on top:
+     * those still in the data container replace the stored ones, the others were deleted.
+     */
+    private TreeMap<Integer, VerifiedEntity> mergeIntoFileContent(){
+        TreeMap<Integer, VerifiedEntity> fileContent = new TreeMap<>();
+        GeneralCRUD<DataInfo> currentCRUD = CRUDFactory.getCRUD(dataInfo);
+        try {
+            currentCRUD.prepare().read(entityParser.parseAll(dataInfo.getDataType()), DataOperation.READ, fileContent);
+        } finally {
+            currentCRUD.release();
+        }
+        for(int id : searchedIds){
+            VerifiedEntity verifiedEntity = dataContainer.get(id);
+            if(verifiedEntity != null){
+                fileContent.put(id, verifiedEntity);
+            }else{
+                fileContent.remove(id);
+            }
+        }
+        return fileContent;
+    }
+
     public void update(DataOperation operation, VerifiedEntity verifiedEntity){
         if(!(dataInfo.getDataType() instanceof FileType)){
             CRUDFactory.getCRUD(dataInfo)
@@ -93,11 +206,18 @@ public abstract class GeneralDAO {
                     .update(entityParser.serializeOne(dataInfo.getDataType()), operation, verifiedEntity)
                     .release();
         }else{
+            ChangeJournal journal = journal();
+            if(journal != null){
+                journal.append(operation, verifiedEntity);
+            }
             isSaveToFileNeeded = true;
         }
+        if(searchedIds != null){
+            searchedIds.add(verifiedEntity.getID());
+        }
         switch (operation){
-            case ADD, MODIFY -> dataContainer.put(verifiedEntity.getID(), verifiedEntity);
-            case DELETE -> dataContainer.remove(verifiedEntity.getID());
+            case ADD, MODIFY -> onEntityChanged(dataContainer.put(verifiedEntity.getID(), verifiedEntity), verifiedEntity);
+            case DELETE -> onEntityChanged(dataContainer.remove(verifiedEntity.getID()), null);
         }
 
     }
@@ -107,6 +227,7 @@ public abstract class GeneralDAO {
         String target_path = getPath();
         String target_name = TextHandler.fetch().input("new_file_name");
         target_path += "/" + target_name + target_extension;
+        targetDataInfo.setFileCompression(chooseCompression());
         createNewFile(target_path);
         targetDataInfo.setUrl(target_path);
         CRUDFactory.getCRUD(targetDataInfo)
@@ -115,36 +236,103 @@ public abstract class GeneralDAO {
                 .release();
     }
 
+    /**
+     * Synchronizes the target data source with the current data. Only the ID and fingerprint of every
+     * target row are read; rows missing locally are deleted, rows missing in the target are added and
+     * rows present on both sides are only modified when their fingerprints differ.
+     *
+     * @param exportDataBaseInfo the target data source
+     */
     public void exportDB(DataInfo exportDataBaseInfo) {
-        TreeMap<Integer, VerifiedEntity> target_container = new TreeMap<>();
-        GeneralCRUD<DataInfo> currentCRUD = CRUDFactory.getCRUD(exportDataBaseInfo)
-                .prepare()
-                .read(entityParser.parseAll(exportDataBaseInfo.getDataType()),null, target_container);
-        target_container.forEach((id, verifiedEntity) -> {
-            if(!dataContainer.containsKey(id)){
-                currentCRUD.update(entityParser.serializeOne(exportDataBaseInfo.getDataType()), DataOperation.DELETE, verifiedEntity);
-            }
-        });
-        dataContainer.forEach((id, verifiedEntity) -> {
-            if(target_container.containsKey(id)){
-                currentCRUD.update(entityParser.serializeOne(exportDataBaseInfo.getDataType()),DataOperation.MODIFY, verifiedEntity);
-            }else{
-                currentCRUD.update(entityParser.serializeOne(exportDataBaseInfo.getDataType()), DataOperation.ADD, verifiedEntity);
+        HashMap<Integer, Long> target_fingerprints = new HashMap<>();
+        GeneralCRUD<DataInfo> currentCRUD = CRUDFactory.getCRUD(exportDataBaseInfo);
+        try {
+            currentCRUD.prepare()
+                    .readFingerprints(entityParser.parseFingerprints(exportDataBaseInfo.getDataType()), target_fingerprints);
+            List<VerifiedEntity> deleted = new ArrayList<>();
+            List<VerifiedEntity> modified = new ArrayList<>();
+            List<VerifiedEntity> added = new ArrayList<>();
+            target_fingerprints.forEach((id, _) -> {
+                if(!dataContainer.containsKey(id)){
+                    deleted.add(entityParser.reference(id));
+                }
+            });
+            dataContainer.forEach((id, verifiedEntity) -> {
+                Long target_fingerprint = target_fingerprints.get(id);
+                if(target_fingerprint == null){
+                    added.add(verifiedEntity);
+                }else if(target_fingerprint != entityParser.fingerprint(verifiedEntity)){
+                    modified.add(verifiedEntity);
+                }
+            });
+            ParserCallBack<?, VerifiedEntity> serializer = entityParser.serializeOne(exportDataBaseInfo.getDataType());
+            currentCRUD.updateBatch(serializer, DataOperation.DELETE, deleted)
+                    .updateBatch(serializer, DataOperation.MODIFY, modified)
+                    .updateBatch(serializer, DataOperation.ADD, added);
+        } finally {
+            currentCRUD.release();
+        }
+    }
+
+    /**
+     * @return the change journal of the current data source, or {@code null} if it is not a journaled file
+     */
+    private ChangeJournal journal(){
+        if(ChangeJournal.isEnabled() && dataInfo.getDataType() instanceof FileType && dataInfo.getUrl() != null){
+            return ChangeJournal.of(dataInfo, entityParser);
+        }
+        return null;
+    }
+
+    /**
+     * Finds the lowest ID whose decimal form contains the given digits, the row the search box selects.
+     * Such an ID is never below the number the digits spell, so when that ID exists it is returned
+     * directly; otherwise the IDs are scanned in ascending order up to the first match.
+     *
+     * @return the lowest matching ID, or {@code null} if no ID contains the digits
+     */
+    public Integer findLowestIdContaining(String digits){
+        if(dataContainer.isEmpty()){
+            return null;
+        }
+        boolean spellsNumber = digits.length() < 10 && (digits.length() == 1 || digits.charAt(0) != '0');
+        if(spellsNumber && dataContainer.firstKey() >= 0 && dataContainer.containsKey(Integer.parseInt(digits))){
+            return Integer.parseInt(digits);
+        }
+        for(int i = 0; i < dataContainer.size(); i++){
+            int id = dataContainer.keyAt(i);
+            if(Integer.toString(id).contains(digits)){
+                return id;
             }
-        });
-        currentCRUD.release();
+        }
+        return null;
     }
 
     public boolean isEmpty(){
         return dataContainer.isEmpty();
     }
 
-    public TreeMap<Integer, VerifiedEntity> getDataContainer() {
+    public IntSortedMap<VerifiedEntity> getDataContainer() {
         return dataContainer;
     }
 
-    private void validateAllData(TreeMap<Integer, VerifiedEntity> dataForValidation){
-        dataForValidation.forEach((_, verifiedEntity) -> isEntityValid(verifiedEntity));
+    /**
+     * Validates a whole batch of entities in parallel on the common fork-join pool and collects every
+     * invalid one instead of stopping at the first.
+     *
+     * @return the IDs and reasons of the invalid entities
+     */
+    public ValidationReport validateAllData(IntSortedMap<VerifiedEntity> dataForValidation){
+        VerifiedEntity[] entities = dataForValidation.valuesArray(new VerifiedEntity[dataForValidation.size()]);
+        String[] invalidReasons = new String[entities.length];
+        Arrays.parallelSetAll(invalidReasons, i -> findInvalidReason(entities[i]));
+        IntSortedMap<String> invalid = new IntSortedMap<>();
+        for(int i = 0; i < entities.length; i++){
+            if(invalidReasons[i] != null){
+                invalid.put(entities[i].getID(), invalidReasons[i]);
+            }
+        }
+        return new ValidationReport(entities.length, invalid);
     }
 
     /**
@@ -238,6 +426,17 @@ public abstract class GeneralDAO {
         return target_path;
     }
 
+    /**
+     * Asks the user which compression a new file is written with. Existing files keep the compression
+     * they were written with unless one is chosen here.
+     *
+     * @return the chosen {@code FileCompression}
+     * @throws OperationCancelledException if the user closes the dialog without choosing
+     */
+    public static FileCompression chooseCompression() {
+        return (FileCompression) TextHandler.fetch().selectionDialog("file_compression", FileCompression.values());
+    }
+
     public void setDataInfo(DataInfo dataInfo) {
         this.dataInfo = dataInfo;
     }
@@ -271,6 +470,8 @@ public abstract class GeneralDAO {
 
     public void clearData(){
         dataContainer.clear();
+        onDataReplaced();
+        searchedIds = null;
     }
 
 }
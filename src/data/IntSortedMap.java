@@ -0,0 +1,410 @@
+package data;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Map from {@code int} keys to values, iterated in ascending key order, that stores its keys unboxed.
+ * <p>
+ * Entries live in an open-addressing hash table of parallel arrays, so a lookup, insertion or removal
+ * is a constant-time probe that allocates nothing. The ascending order is a sorted copy of the keys
+ * built the first time it is needed after keys were added or removed; replacing the value of an
+ * existing key keeps it. Compared to a {@code TreeMap<Integer, V>}, there is no tree node and no
+ * {@code Integer} per entry.
+ * <p>
+ * The {@code Map} methods taking or returning {@code Integer} are supported for interoperability;
+ * the {@code int} overloads avoid boxing. Iterators and range views are fail-fast. Not thread-safe.
+ * @author SIN
+ */
+public class IntSortedMap<V> extends AbstractMap<Integer, V> {
+    private static final int MINIMUM_CAPACITY = 16;
+    private int[] keys;
+    private Object[] values;
+    private boolean[] occupied;
+    private int size = 0;
+    private int mask;
+    private int[] sortedKeys;
+    private int modifications = 0;
+    private Set<Entry<Integer, V>> entrySet;
+
+    public IntSortedMap() {
+        this(MINIMUM_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize the number of entries the map should hold without growing
+     */
+    public IntSortedMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public IntSortedMap(Map<Integer, ? extends V> map) {
+        this(map.size());
+        map.forEach(this::put);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return occupied[slot(key)];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = slot(key);
+        return occupied[slot] ? (V) values[slot] : null;
+    }
+
+    /**
+     * @return the previous value of the key, or {@code null} if it was absent
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        int slot = slot(key);
+        if (occupied[slot]) {
+            V previous = (V) values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        occupied[slot] = true;
+        size++;
+        structureChanged();
+        if (size > threshold()) {
+            allocate(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * @return the removed value, or {@code null} if the key was absent
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = slot(key);
+        if (!occupied[slot]) {
+            return null;
+        }
+        V previous = (V) values[slot];
+        deleteSlot(slot);
+        size--;
+        structureChanged();
+        return previous;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer id && containsKey(id.intValue());
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Integer id ? get(id.intValue()) : null;
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        return put(key.intValue(), value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Integer id ? remove(id.intValue()) : null;
+    }
+
+    @Override
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(occupied, false);
+            Arrays.fill(values, null);
+            size = 0;
+            structureChanged();
+        }
+    }
+
+    /**
+     * @throws NoSuchElementException if the map is empty
+     */
+    public int firstKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return sortedKeys()[0];
+    }
+
+    /**
+     * @throws NoSuchElementException if the map is empty
+     */
+    public int lastKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return sortedKeys()[size - 1];
+    }
+
+    /**
+     * @return the key at the given position in ascending key order
+     * @throws IndexOutOfBoundsException if the position is not below {@code size()}
+     */
+    public int keyAt(int index) {
+        Objects.checkIndex(index, size);
+        return sortedKeys()[index];
+    }
+
+    /**
+     * Hands every entry to the action in ascending key order, without boxing the keys.
+     */
+    public void forEachEntry(ObjIntConsumer<? super V> action) {
+        int[] order = sortedKeys();
+        int expectedModifications = modifications;
+        for (int key : order) {
+            action.accept(get(key), key);
+            if (modifications != expectedModifications) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Integer, ? super V> action) {
+        forEachEntry((value, key) -> action.accept(key, value));
+    }
+
+    /**
+     * Returns a read-only view of the values whose keys are in {@code [fromInclusive, toExclusive)},
+     * in ascending key order. The view fails with a {@code ConcurrentModificationException} once keys
+     * are added to or removed from the map.
+     */
+    public List<V> valuesBetween(int fromInclusive, int toExclusive) {
+        int[] order = sortedKeys();
+        int from = lowerBound(order, fromInclusive);
+        int to = Math.max(from, lowerBound(order, toExclusive));
+        int expectedModifications = modifications;
+        return new AbstractList<>() {
+            @Override
+            public V get(int index) {
+                if (modifications != expectedModifications) {
+                    throw new ConcurrentModificationException();
+                }
+                return IntSortedMap.this.get(order[from + index]);
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    /**
+     * Copies the values in ascending key order into the target array, or into a new array of the same
+     * component type when the target is too small.
+     */
+    public V[] valuesArray(V[] target) {
+        V[] result = target.length >= size ? target : Arrays.copyOf(target, size);
+        int[] order = sortedKeys();
+        for (int i = 0; i < size; i++) {
+            result[i] = get(order[i]);
+        }
+        return result;
+    }
+
+    public IntSortedMap<V> copy() {
+        IntSortedMap<V> copy = new IntSortedMap<>(0);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.occupied = occupied.clone();
+        copy.size = size;
+        copy.mask = mask;
+        copy.sortedKeys = sortedKeys;
+        return copy;
+    }
+
+    @Override
+    public Set<Entry<Integer, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Integer, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return o instanceof Entry<?, ?> entry && entry.getKey() instanceof Integer key
+                            && containsKey(key.intValue()) && Objects.equals(get(key.intValue()), entry.getValue());
+                }
+
+                @Override
+                public void clear() {
+                    IntSortedMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private class EntryIterator implements Iterator<Entry<Integer, V>> {
+        private final int[] order = sortedKeys();
+        private int next = 0;
+        private int expectedModifications = modifications;
+        private boolean canRemove = false;
+
+        @Override
+        public boolean hasNext() {
+            return next < order.length;
+        }
+
+        @Override
+        public Entry<Integer, V> next() {
+            if (modifications != expectedModifications) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= order.length) {
+                throw new NoSuchElementException();
+            }
+            int key = order[next++];
+            canRemove = true;
+            return new SimpleEntry<>(key, get(key)) {
+                @Override
+                public V setValue(V value) {
+                    IntSortedMap.this.put(key, value);
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            if (modifications != expectedModifications) {
+                throw new ConcurrentModificationException();
+            }
+            IntSortedMap.this.remove(order[next - 1]);
+            expectedModifications = modifications;
+            canRemove = false;
+        }
+    }
+
+    private int[] sortedKeys() {
+        if (sortedKeys == null) {
+            int[] order = new int[size];
+            int index = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (occupied[slot]) {
+                    order[index++] = keys[slot];
+                }
+            }
+            Arrays.sort(order);
+            sortedKeys = order;
+        }
+        return sortedKeys;
+    }
+
+    private void structureChanged() {
+        sortedKeys = null;
+        modifications++;
+    }
+
+    /**
+     * @return the slot holding the key, or the free slot where it would be inserted
+     */
+    private int slot(int key) {
+        int slot = hash(key) & mask;
+        while (occupied[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties a slot and shifts back the entries of the same probe run, so that no tombstone is needed.
+     */
+    private void deleteSlot(int slot) {
+        int gap = slot;
+        int current = slot;
+        while (true) {
+            current = (current + 1) & mask;
+            if (!occupied[current]) {
+                break;
+            }
+            int home = hash(keys[current]) & mask;
+            if (((current - home) & mask) >= ((current - gap) & mask)) {
+                keys[gap] = keys[current];
+                values[gap] = values[current];
+                gap = current;
+            }
+        }
+        occupied[gap] = false;
+        values[gap] = null;
+    }
+
+    private void allocate(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        boolean[] oldOccupied = occupied;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        occupied = new boolean[capacity];
+        mask = capacity - 1;
+        if (oldKeys != null) {
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldOccupied[i]) {
+                    int slot = slot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                    occupied[slot] = true;
+                }
+            }
+        }
+    }
+
+    private int threshold() {
+        return (int) (keys.length * 0.75);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity * 0.75 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int lowerBound(int[] sorted, int key) {
+        int index = Arrays.binarySearch(sorted, key);
+        return index >= 0 ? index : -index - 1;
+    }
+}
@@ -0,0 +1,63 @@
+package data;
+
+import Interface.EntityCursor;
+import Interface.ParserCallBack;
+import Interface.VerifiedEntity;
+import exceptions.OperationException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * {@code EntityCursor} that pulls raw rows from a data source one at a time and turns them into
+ * entities with the same {@code ParserCallBack} used by {@code GeneralCRUD.read}. Only the entities
+ * produced by the current raw row are buffered, so memory stays bounded whatever the size of the source.
+ * @author SIN
+ */
+public class ParsingCursor<R> implements EntityCursor<VerifiedEntity> {
+    private final Iterator<R> rawRows;
+    private final ParserCallBack<R, TreeMap<Integer, VerifiedEntity>> parser;
+    private final AutoCloseable resource;
+    private final TreeMap<Integer, VerifiedEntity> buffer = new TreeMap<>();
+
+    /**
+     * @param rawRows the raw rows of the data source, such as result set positions, documents or lines
+     * @param parser the parser turning one raw row into entities
+     * @param resource the resource closed together with the cursor, may be {@code null}
+     */
+    public ParsingCursor(Iterator<R> rawRows, ParserCallBack<R, TreeMap<Integer, VerifiedEntity>> parser, AutoCloseable resource) {
+        this.rawRows = rawRows;
+        this.parser = parser;
+        this.resource = resource;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (buffer.isEmpty() && rawRows.hasNext()) {
+            parser.parse(rawRows.next(), DataOperation.READ, buffer);
+        }
+        return !buffer.isEmpty();
+    }
+
+    @Override
+    public VerifiedEntity next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return buffer.pollFirstEntry().getValue();
+    }
+
+    @Override
+    public void close() {
+        buffer.clear();
+        if (resource == null) {
+            return;
+        }
+        try {
+            resource.close();
+        } catch (Exception e) {
+            throw new OperationException("Cursor could not be closed. Cause: " + e.getMessage());
+        }
+    }
+}
@@ -6,7 +6,6 @@ import data.database.DatabaseCRUD;
 import data.database.SqlDialect;
 import data.http.PhpType;
 import exceptions.ConfigErrorException;
-import exceptions.DataCorruptedException;
 import exceptions.OperationException;
 import model.DataInfo;
 import model.Player;
@@ -17,7 +16,12 @@ import org.yaml.snakeyaml.Yaml;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static main.principal.getProperty;
 
@@ -32,6 +36,8 @@ import static main.principal.getProperty;
  */
 public class PlayerDAO extends GeneralDAO {
     private HashMap<Region, Server[]> region_server_map;
+    private HashMap<Region, HashSet<Server>> valid_servers = new HashMap<>();
+    private CompletableFuture<PlayerIndex> playerIndex = CompletableFuture.completedFuture(new PlayerIndex(new IntSortedMap<>()));
 
     public PlayerDAO(EntityParser entityParser) {
         super(entityParser);
@@ -47,7 +53,9 @@ public class PlayerDAO extends GeneralDAO {
      * 3. Configures the database information's data source to use Hibernate.
      * 4. Connects to the database using the configured information.
      * 5. Reads the region server data from the database and updates the
-     *    internal region server map.
+     *    internal region server map with the canonical instances of
+     *    {@code RegionServerRegistry}, shared by every parsed player, and
+     *    indexes the servers of every region for validation.
      * 6. Logs the successful update of the region server map.
      * <p>
      * If any exception occurs during the database configuration or
@@ -67,7 +75,9 @@ public class PlayerDAO extends GeneralDAO {
         regionServerInfo.setDialect(SqlDialect.SQLITE);
         try {
             getDefaultDatabaseInfo(regionServerInfo);
-            region_server_map = DatabaseCRUD.readRegionServer(regionServerInfo);
+            region_server_map = RegionServerRegistry.seed(DatabaseCRUD.readRegionServer(regionServerInfo));
+            valid_servers = new HashMap<>();
+            region_server_map.forEach((region, servers) -> valid_servers.put(region, new HashSet<>(Arrays.asList(servers))));
         } catch (ConfigErrorException e) {
             throw new ConfigErrorException("Failed to fetch region server info. Cause: " + e.getMessage());
         }
@@ -115,36 +125,123 @@ public class PlayerDAO extends GeneralDAO {
                 case "text_query_modify" -> dataInfo.setQueryModify((String) value);
                 case "text_query_delete" -> dataInfo.setQueryDelete((String) value);
                 case "text_query_search" -> dataInfo.setQuerySearch((String) value);
+                case "text_query_fingerprint" -> dataInfo.setQueryFingerprint((String) value);
             }
         });
         return dataInfo;
     }
 
+    /**
+     * Validates a player against the region/server index built by {@code initializeRegionServer}:
+     * two hash lookups, with no scan over the servers of the region and no allocation.
+     */
     @Override
-    protected void isEntityValid(VerifiedEntity verifiedEntity){
+    protected String findInvalidReason(VerifiedEntity verifiedEntity){
         Player player = (Player) verifiedEntity;
-        if(region_server_map.isEmpty()){
-            throw new DataCorruptedException("region_server_map is null");
-        }
-        if(!region_server_map.containsKey(player.getRegion())){
-            throw new DataCorruptedException("Player's region is not found");
+        if(valid_servers.isEmpty()){
+            return "region_server_map is null";
         }
-        boolean server_valid = false;
-        for(Server server : region_server_map.get(player.getRegion())){
-            if (server.equals(player.getServer())) {
-                server_valid = true;
-                break;
-            }
+        HashSet<Server> servers = valid_servers.get(player.getRegion());
+        if(servers == null){
+            return "Player's region is not found";
         }
-        if(!server_valid){
-            throw new DataCorruptedException("Player's server is not found");
+        if(!servers.contains(player.getServer())){
+            return "Player's server is not found";
         }
         if(player.getID() <= 0){
-            throw new DataCorruptedException("Player's ID is invalid");
+            return "Player's ID is invalid";
+        }
+        if(player.getName() == null || player.getName().isBlank()){
+            return "Player's name is invalid";
         }
-        if(player.getName().isBlank()){
-            throw new DataCorruptedException("Player's name is invalid");
+        return null;
+    }
+
+    /**
+     * @return a read-only view of the players of the region, keyed by ID, that follows later changes
+     */
+    public Map<Integer, VerifiedEntity> findByRegion(Region region) {
+        return index().findByRegion(region);
+    }
+
+    /**
+     * @return a read-only view of the players of the server, keyed by ID, that follows later changes
+     */
+    public Map<Integer, VerifiedEntity> findByServer(Server server) {
+        return index().findByServer(server);
+    }
+
+    /**
+     * @return the players whose name starts with the prefix, ignoring case, keyed by ID
+     */
+    public IntSortedMap<VerifiedEntity> findByNamePrefix(String prefix) {
+        return index().findByNamePrefix(prefix);
+    }
+
+    /**
+     * Finds the lowest ID among the players whose name starts with the prefix, ignoring case. This is
+     * meant to run on every keystroke, so it never waits for the indexes: while they are still being
+     * built, or rebuilt after a failed build, the players are scanned in ascending ID order up to the
+     * first match instead.
+     *
+     * @return the lowest matching ID, or {@code null} if no name matches
+     */
+    public Integer findLowestIdByNamePrefix(String prefix) {
+        if(playerIndex.isCompletedExceptionally()){
+            onDataReplaced();
         }
+        PlayerIndex index = playerIndex.getNow(null);
+        if(index != null){
+            return index.findLowestIdByNamePrefix(prefix, dataContainer);
+        }
+        String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        for(int i = 0; i < dataContainer.size(); i++){
+            int id = dataContainer.keyAt(i);
+            if(PlayerIndex.lowerName((Player) dataContainer.get(id)).startsWith(lowerPrefix)){
+                return id;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Waits for the secondary indexes. When their build, or a change queued behind it, failed, they are
+     * rebuilt from the data container, which already holds every change, instead of failing every lookup.
+     */
+    private PlayerIndex index() {
+        if(playerIndex.isCompletedExceptionally()){
+            onDataReplaced();
+        }
+        return playerIndex.join();
+    }
+
+    /**
+     * Keeps the secondary indexes in step with a single change. While they are still being built,
+     * the change is queued behind the build, so it is applied in order.
+     */
+    @Override
+    protected void onEntityChanged(VerifiedEntity previous, VerifiedEntity current) {
+        playerIndex = playerIndex.thenApply(index -> {
+            if(previous != null){
+                index.remove((Player) previous);
+            }
+            if(current != null){
+                index.add((Player) current);
+            }
+            return index;
+        });
+    }
+
+    /**
+     * Rebuilds the secondary indexes after a bulk load on a background thread, from a copy of the data
+     * container, so that the first lookup after an import does not stall the UI.
+     */
+    @Override
+    protected void onDataReplaced() {
+        IntSortedMap<VerifiedEntity> players = dataContainer.copy();
+        playerIndex = players.isEmpty()
+                ? CompletableFuture.completedFuture(new PlayerIndex(players))
+                : CompletableFuture.supplyAsync(() -> new PlayerIndex(players));
     }
 
     public HashMap<Region, Server[]> getRegion_server_map() {
@@ -0,0 +1,129 @@
+package data;
+
+import Interface.VerifiedEntity;
+import model.Player;
+import model.Region;
+import model.Server;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Secondary indexes over the players of a {@code PlayerDAO}: by region, by server and by name.
+ * <p>
+ * Region and server map to the players they hold, keyed by ID. Names are kept lower-cased in a sorted
+ * map, so a case-insensitive prefix lookup is a range scan that only visits the matching players.
+ * Not thread-safe; once built, it is read and updated by the thread owning the data container.
+ * @author SIN
+ */
+class PlayerIndex {
+    private final HashMap<Region, IntSortedMap<VerifiedEntity>> byRegion = new HashMap<>();
+    private final HashMap<Server, IntSortedMap<VerifiedEntity>> byServer = new HashMap<>();
+    private final TreeMap<NameKey, Player> byName = new TreeMap<>();
+
+    /**
+     * Orders players by lower-cased name, then by ID, so equal names stay distinct entries.
+     */
+    private record NameKey(String name, int id) implements Comparable<NameKey> {
+        @Override
+        public int compareTo(NameKey other) {
+            int byName = name.compareTo(other.name);
+            return byName != 0 ? byName : Integer.compare(id, other.id);
+        }
+    }
+
+    PlayerIndex(IntSortedMap<VerifiedEntity> players) {
+        players.forEachEntry((verifiedEntity, _) -> add((Player) verifiedEntity));
+    }
+
+    void add(Player player) {
+        byRegion.computeIfAbsent(player.getRegion(), _ -> new IntSortedMap<>()).put(player.getID(), player);
+        byServer.computeIfAbsent(player.getServer(), _ -> new IntSortedMap<>()).put(player.getID(), player);
+        byName.put(new NameKey(lowerName(player), player.getID()), player);
+    }
+
+    /**
+     * Removes a player. Emptied region and server entries are kept, so views handed out for them
+     * keep following later changes; there are only a handful of regions and servers.
+     */
+    void remove(Player player) {
+        removeFrom(byRegion, player.getRegion(), player.getID());
+        removeFrom(byServer, player.getServer(), player.getID());
+        byName.remove(new NameKey(lowerName(player), player.getID()));
+    }
+
+    /**
+     * @return a read-only view of the players of the region, keyed by ID in ascending order
+     */
+    Map<Integer, VerifiedEntity> findByRegion(Region region) {
+        IntSortedMap<VerifiedEntity> players = byRegion.get(region);
+        return players == null ? Collections.emptyMap() : Collections.unmodifiableMap(players);
+    }
+
+    /**
+     * @return a read-only view of the players of the server, keyed by ID in ascending order
+     */
+    Map<Integer, VerifiedEntity> findByServer(Server server) {
+        IntSortedMap<VerifiedEntity> players = byServer.get(server);
+        return players == null ? Collections.emptyMap() : Collections.unmodifiableMap(players);
+    }
+
+    IntSortedMap<VerifiedEntity> findByNamePrefix(String prefix) {
+        String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        IntSortedMap<VerifiedEntity> players = new IntSortedMap<>();
+        for (Map.Entry<NameKey, Player> entry : byName.tailMap(new NameKey(lowerPrefix, Integer.MIN_VALUE)).entrySet()) {
+            if (!entry.getKey().name().startsWith(lowerPrefix)) {
+                break;
+            }
+            players.put(entry.getKey().id(), entry.getValue());
+        }
+        return players;
+    }
+
+    /**
+     * Finds the lowest ID among the players whose name starts with the prefix, ignoring case, without
+     * collecting the matches. The name range and the players in ascending ID order are walked in step:
+     * the first player of the ID walk whose name matches is the answer, and when the name range ends
+     * first, its lowest ID is. A common prefix thus ends early in the ID walk and a rare one in the range.
+     *
+     * @param playersById the players the index was built from
+     * @return the lowest matching ID, or {@code null} if no name matches
+     */
+    Integer findLowestIdByNamePrefix(String prefix, IntSortedMap<VerifiedEntity> playersById) {
+        String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        Iterator<NameKey> matches = byName.tailMap(new NameKey(lowerPrefix, Integer.MIN_VALUE)).keySet().iterator();
+        Integer lowest = null;
+        int position = 0;
+        while (matches.hasNext()) {
+            NameKey match = matches.next();
+            if (!match.name().startsWith(lowerPrefix)) {
+                break;
+            }
+            if (lowest == null || match.id() < lowest) {
+                lowest = match.id();
+            }
+            if (position < playersById.size()) {
+                Player player = (Player) playersById.get(playersById.keyAt(position++));
+                if (lowerName(player).startsWith(lowerPrefix)) {
+                    return player.getID();
+                }
+            }
+        }
+        return lowest;
+    }
+
+    static String lowerName(Player player) {
+        return player.getName() == null ? "" : player.getName().toLowerCase(Locale.ROOT);
+    }
+
+    private static <K> void removeFrom(HashMap<K, IntSortedMap<VerifiedEntity>> index, K key, int id) {
+        IntSortedMap<VerifiedEntity> players = index.get(key);
+        if (players != null) {
+            players.remove(id);
+        }
+    }
+}
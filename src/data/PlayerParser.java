@@ -3,15 +3,18 @@ package data;
 import Interface.EntityParser;
 import Interface.ParserCallBack;
 import Interface.VerifiedEntity;
+import data.file.DatRecord;
 import data.file.FileType;
-import data.file.xml_utils;
+import data.file.XmlElementWriter;
 import data.http.PhpType;
 import exceptions.DataCorruptedException;
 import exceptions.DatabaseException;
+import exceptions.FileManageException;
 import exceptions.OperationException;
 import model.Player;
-import model.Region;
-import model.Server;
+import org.basex.query.value.node.ANode;
+import org.basex.query.value.type.NodeType;
+import org.basex.util.Token;
 import org.bson.Document;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -19,12 +22,19 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.Writer;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.Consumer;
 
 /**
  * @author SIN
@@ -45,10 +55,10 @@ public class PlayerParser implements EntityParser {
             case DataSource.DATABASE -> (ParserCallBack<ResultSet, TreeMap<Integer, VerifiedEntity>>) this::parseResultSet;
             case DataSource.HIBERNATE, DataSource.OBJECTDB -> (ParserCallBack<List<VerifiedEntity>, TreeMap<Integer, VerifiedEntity>>) this::parseList;
             case DataSource.MONGO -> (ParserCallBack<Document, TreeMap<Integer, VerifiedEntity>>) this::parseMongoDocument;
-            case DataSource.BASEX, FileType.XML -> (ParserCallBack<Element, TreeMap<Integer, VerifiedEntity>>) this::parseXmlElement;
+            case DataSource.BASEX, FileType.XML -> (ParserCallBack<Object, TreeMap<Integer, VerifiedEntity>>) this::parseXml;
             case PhpType.JSON -> (ParserCallBack<JSONObject, TreeMap<Integer, VerifiedEntity>>) this::parseJsonObject;
             case FileType.TXT -> (ParserCallBack<String, TreeMap<Integer, VerifiedEntity>>) this::parseStringLine;
-            case FileType.DAT -> (ParserCallBack<VerifiedEntity, TreeMap<Integer, VerifiedEntity>>) this::parseVerifiedEntity;
+            case FileType.DAT -> (ParserCallBack<Object, TreeMap<Integer, VerifiedEntity>>) this::parseDatRecord;
             default -> throw new IllegalStateException("Unexpected value: " + dataType);
         };
     }
@@ -66,21 +76,96 @@ public class PlayerParser implements EntityParser {
     }
 
     @Override
-    public ParserCallBack<?, TreeMap<Integer, VerifiedEntity>> serializeAll(Object dataType){
+    public ParserCallBack<?, Map<Integer, VerifiedEntity>> serializeAll(Object dataType){
         return switch (dataType) {
-            case FileType.XML -> (ParserCallBack<org.w3c.dom.Document, TreeMap<Integer, VerifiedEntity>>) this::playerToXmlElement;
-            case FileType.TXT -> (ParserCallBack<ArrayList<String>, TreeMap<Integer, VerifiedEntity>>) this::playerToArrayString;
-            case FileType.DAT -> (ParserCallBack<ArrayList<Player>, TreeMap<Integer, VerifiedEntity>>) this::playerToArrayEntity;
+            case FileType.XML -> (ParserCallBack<XmlElementWriter, Map<Integer, VerifiedEntity>>) this::playerToXmlWriter;
+            case FileType.TXT -> (ParserCallBack<Writer, Map<Integer, VerifiedEntity>>) this::playerToTextWriter;
+            case FileType.DAT -> (ParserCallBack<Consumer<DatRecord>, Map<Integer, VerifiedEntity>>) this::playerToDatRecord;
             default -> throw new IllegalStateException("Unexpected value: " + dataType);
         };
     }
+    /**
+     * Returns a parser that reads only the ID and the fingerprint of every row, computed straight
+     * from the raw data without building {@code Player}, {@code Region} and {@code Server} objects.
+     * Hibernate and ObjectDB hand over the {@code Object[]} rows of the ID, region, server and name projection.
+     */
+    @Override
+    public ParserCallBack<?, HashMap<Integer, Long>> parseFingerprints(Object dataType){
+        return switch (dataType){
+            case DataSource.DATABASE -> (ParserCallBack<ResultSet, HashMap<Integer, Long>>) this::fingerprintResultSet;
+            case DataSource.HIBERNATE, DataSource.OBJECTDB -> (ParserCallBack<List<Object[]>, HashMap<Integer, Long>>) this::fingerprintRows;
+            case DataSource.MONGO -> (ParserCallBack<Document, HashMap<Integer, Long>>) this::fingerprintMongoDocument;
+            case DataSource.BASEX, FileType.XML -> (ParserCallBack<Object, HashMap<Integer, Long>>) this::fingerprintXml;
+            case PhpType.JSON -> (ParserCallBack<JSONObject, HashMap<Integer, Long>>) this::fingerprintJsonObject;
+            default -> throw new IllegalStateException("Unexpected value: " + dataType);
+        };
+    }
+
+    @Override
+    public long fingerprint(VerifiedEntity entity) {
+        Player player = (Player) entity;
+        return fingerprint(String.valueOf(player.getRegion()), String.valueOf(player.getServer()), player.getName());
+    }
+
+    @Override
+    public VerifiedEntity reference(int id) {
+        Player player = new Player();
+        player.setID(id);
+        return player;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of region, server and name, used to detect changed rows without comparing objects.
+     */
+    static long fingerprint(String region, String server, String name){
+        long hash = 0xcbf29ce484222325L;
+        for (String field : new String[]{region, server, name}) {
+            String value = field == null ? "" : field;
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+            }
+            hash = (hash ^ 0xffff) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private void fingerprintResultSet(ResultSet resultSet, DataOperation operation, HashMap<Integer, Long> fingerprints){
+        try {
+            fingerprints.put(resultSet.getInt("id"), fingerprint(resultSet.getString("region"), resultSet.getString("server"), resultSet.getString("name")));
+        } catch (SQLException e) {
+            throw new DatabaseException(e.getMessage());
+        }
+    }
+
+    private void fingerprintRows(List<Object[]> rows, DataOperation operation, HashMap<Integer, Long> fingerprints){
+        rows.forEach(row -> fingerprints.put((Integer) row[0], fingerprint(String.valueOf(row[1]), String.valueOf(row[2]), (String) row[3])));
+    }
+
+    private void fingerprintMongoDocument(Document document, DataOperation operation, HashMap<Integer, Long> fingerprints){
+        fingerprints.put(document.getInteger("id"), fingerprint(document.getString("region"), document.getString("server"), document.getString("name")));
+    }
+
+    private void fingerprintXml(Object rawData, DataOperation operation, HashMap<Integer, Long> fingerprints){
+        forEachXmlPlayer(rawData, fields -> fingerprints.put(Integer.parseInt(fields[0]), fingerprint(fields[1], fields[2], fields[3])));
+    }
+
+    private void fingerprintJsonObject(JSONObject jsonObject, DataOperation operation, HashMap<Integer, Long> fingerprints){
+        for (Object object : (JSONArray) jsonObject.get("players")) {
+            JSONObject playerObject = (JSONObject) object;
+            fingerprints.put(Integer.parseInt(playerObject.get("id").toString()), fingerprint(
+                    playerObject.get("region").toString(),
+                    playerObject.get("server").toString(),
+                    playerObject.get("name").toString()));
+        }
+    }
+
     private void parseResultSet(ResultSet resultSet, DataOperation operation, TreeMap<Integer, VerifiedEntity> dataMap){
         try {
             Player player = new Player();
             player.setID(resultSet.getInt("id"));
             player.setName(resultSet.getString("name"));
-            player.setRegion(new Region(resultSet.getString("region")));
-            player.setServer(new Server(resultSet.getString("server"), player.getRegion()));
+            player.setRegion(RegionServerRegistry.region(resultSet.getString("region")));
+            player.setServer(RegionServerRegistry.server(resultSet.getString("server"), player.getRegion()));
             dataMap.put(player.getID(), player);
         } catch (SQLException e) {
             throw new DatabaseException(e.getMessage());
@@ -121,8 +206,8 @@ public class PlayerParser implements EntityParser {
         Player player = new Player();
         player.setID(document.getInteger("id"));
         player.setName(document.getString("name"));
-        player.setRegion(new Region(document.getString("region")));
-        player.setServer(new Server(document.getString("server"), player.getRegion()));
+        player.setRegion(RegionServerRegistry.region(document.getString("region")));
+        player.setServer(RegionServerRegistry.server(document.getString("server"), player.getRegion()));
         dataMap.put(player.getID(), player);
     }
 
@@ -140,20 +225,42 @@ public class PlayerParser implements EntityParser {
     }
 
     private void parseStringLine(String line, DataOperation operation, TreeMap<Integer, VerifiedEntity> dataMap){
-        String[] player_txt = line.split(";");
+        int regionStart = line.indexOf(';') + 1;
+        int serverStart = line.indexOf(';', regionStart) + 1;
+        int nameStart = line.indexOf(';', serverStart) + 1;
+        if(regionStart == 0 || serverStart == 0 || nameStart == 0){
+            throw new DataCorruptedException("Invalid player line: " + line);
+        }
+        int nameEnd = line.indexOf(';', nameStart);
         Player player = new Player();
-        player.setID(Integer.parseInt(player_txt[0]));
-        player.setRegion(new Region(player_txt[1]));
-        player.setServer(new Server(player_txt[2], player.getRegion()));
-        player.setName(player_txt[3]);
+        player.setID(Integer.parseInt(line, 0, regionStart - 1, 10));
+        player.setRegion(RegionServerRegistry.region(line.substring(regionStart, serverStart - 1)));
+        player.setServer(RegionServerRegistry.server(line.substring(serverStart, nameStart - 1), player.getRegion()));
+        player.setName(line.substring(nameStart, nameEnd < 0 ? line.length() : nameEnd));
         dataMap.put(player.getID(),player);
     }
 
-    private void playerToArrayString(ArrayList<String> list, DataOperation operation, TreeMap<Integer, VerifiedEntity> dataMap){
-        dataMap.values().forEach(verifiedEntity -> {
-            Player player = (Player) verifiedEntity;
-            list.add("%s;%s;%s;%s".formatted(player.getID(),player.getRegion(),player.getServer(),player.getName()));
-        });
+    /**
+     * Writes every player as one {@code id;region;server;name} line straight into the writer,
+     * without building an intermediate line list or format string per row.
+     */
+    private void playerToTextWriter(Writer writer, DataOperation operation, Map<Integer, VerifiedEntity> dataMap){
+        String lineSeparator = System.lineSeparator();
+        try {
+            for (VerifiedEntity verifiedEntity : dataMap.values()) {
+                Player player = (Player) verifiedEntity;
+                writer.write(Integer.toString(player.getID()));
+                writer.write(';');
+                writer.write(String.valueOf(player.getRegion()));
+                writer.write(';');
+                writer.write(String.valueOf(player.getServer()));
+                writer.write(';');
+                writer.write(String.valueOf(player.getName()));
+                writer.write(lineSeparator);
+            }
+        } catch (IOException e) {
+            throw new FileManageException("Error writing this txt file.>>>" + e.getMessage());
+        }
     }
 
     private void parseVerifiedEntity(VerifiedEntity entity, DataOperation operation, TreeMap<Integer, VerifiedEntity> dataMap){
@@ -161,43 +268,174 @@ public class PlayerParser implements EntityParser {
         dataMap.put(player.getID(),player);
     }
 
-    private void playerToArrayEntity(ArrayList<Player> list, DataOperation operation, TreeMap<Integer, VerifiedEntity> dataMap){
-        dataMap.values().forEach(verifiedEntity -> {
-            Player player = (Player) verifiedEntity;
-            list.add(player);
-        });
-    }
-
-    private void parseXmlElement(Element element, DataOperation operation, TreeMap<Integer, VerifiedEntity> dataMap){
-        NodeList playerNodes = element.getElementsByTagName("player");
-        for (int i = 0; i < playerNodes.getLength(); i++) {
-            Node playerNode = playerNodes.item(i);
-            if (playerNode.getNodeType() == Node.ELEMENT_NODE) {
-                Element playerElement = (Element) playerNode;
+    /**
+     * Reads a binary DAT record, or a {@code Player} from a legacy object-serialized DAT file.
+     */
+    private void parseDatRecord(Object rawData, DataOperation operation, TreeMap<Integer, VerifiedEntity> dataMap){
+        switch (rawData){
+            case DatRecord record -> {
                 Player player = new Player();
-                player.setID(Integer.parseInt(playerElement.getAttribute("id")));
-                player.setRegion(new Region(xml_utils.getElementTextContent(playerElement, "region")));
-                player.setServer(new Server(xml_utils.getElementTextContent(playerElement, "server"), player.getRegion()));
-                player.setName(xml_utils.getElementTextContent(playerElement, "name"));
+                player.setID(record.id());
+                player.setRegion(RegionServerRegistry.region(record.dictionaryFields()[0]));
+                player.setServer(RegionServerRegistry.server(record.dictionaryFields()[1], player.getRegion()));
+                player.setName(record.plainFields()[0]);
                 dataMap.put(player.getID(), player);
             }
+            case VerifiedEntity entity -> parseVerifiedEntity(entity, operation, dataMap);
+            default -> throw new DataCorruptedException("Unexpected dat record: " + rawData);
         }
     }
 
-    private void playerToXmlElement(org.w3c.dom.Document document, DataOperation operation, TreeMap<Integer, VerifiedEntity> dataMap){
-        Element rootElement = document.createElement("Player");
-        document.appendChild(rootElement);
+    /**
+     * Region and server repeat across many players, so they go through the file dictionary; the name is stored inline.
+     */
+    private void playerToDatRecord(Consumer<DatRecord> writer, DataOperation operation, Map<Integer, VerifiedEntity> dataMap){
         dataMap.values().forEach(verifiedEntity -> {
             Player player = (Player) verifiedEntity;
-            Element playerElement = document.createElement("player");
-            playerElement.setAttribute("id", String.valueOf(player.getID()));
-            xml_utils.createElementWithText(document, playerElement, "region", player.getRegion().toString());
-            xml_utils.createElementWithText(document, playerElement, "server", player.getServer().toString());
-            xml_utils.createElementWithText(document, playerElement, "name", player.getName());
-            rootElement.appendChild(playerElement);
+            writer.accept(new DatRecord(player.getID(),
+                    new String[]{String.valueOf(player.getRegion()), String.valueOf(player.getServer())},
+                    new String[]{player.getName()}));
         });
     }
 
+    private void parseXml(Object rawData, DataOperation operation, TreeMap<Integer, VerifiedEntity> dataMap){
+        forEachXmlPlayer(rawData, fields -> {
+            Player player = new Player();
+            player.setID(Integer.parseInt(fields[0]));
+            player.setRegion(RegionServerRegistry.region(fields[1]));
+            player.setServer(RegionServerRegistry.server(fields[2], player.getRegion()));
+            player.setName(fields[3]);
+            dataMap.put(player.getID(), player);
+        });
+    }
+
+    /**
+     * Hands the {@code id}, {@code region}, {@code server} and {@code name} of XML players to the consumer.
+     * The raw data is either a DOM element, whose {@code <player>} descendants are all read, a StAX
+     * reader positioned on a {@code <player>} start tag, of which only that player is read, or a BaseX
+     * query result node, being either a {@code <player>} or an element wrapping {@code <player>} children.
+     */
+    private static void forEachXmlPlayer(Object rawData, Consumer<String[]> consumer){
+        switch (rawData){
+            case Element element -> {
+                NodeList playerNodes = element.getElementsByTagName("player");
+                for (int i = 0; i < playerNodes.getLength(); i++) {
+                    if (playerNodes.item(i) instanceof Element playerElement) {
+                        consumer.accept(xmlPlayerFields(playerElement));
+                    }
+                }
+            }
+            case XMLStreamReader reader -> consumer.accept(xmlPlayerFields(reader));
+            case ANode node -> {
+                if ("player".equals(Token.string(node.name()))) {
+                    consumer.accept(xmlPlayerFields(node));
+                } else {
+                    for (ANode child : node.childIter()) {
+                        if (child.nodeType() == NodeType.ELEMENT && "player".equals(Token.string(child.name()))) {
+                            consumer.accept(xmlPlayerFields(child));
+                        }
+                    }
+                }
+            }
+            default -> throw new DataCorruptedException("Unexpected xml data: " + rawData);
+        }
+    }
+
+    /**
+     * Reads the fields of a DOM player in one pass over its child elements.
+     */
+    private static String[] xmlPlayerFields(Element playerElement){
+        String[] fields = {playerElement.getAttribute("id"), null, null, null};
+        for (Node child = playerElement.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element field) {
+                switch (field.getTagName()) {
+                    case "region" -> fields[1] = fields[1] == null ? field.getTextContent() : fields[1];
+                    case "server" -> fields[2] = fields[2] == null ? field.getTextContent() : fields[2];
+                    case "name" -> fields[3] = fields[3] == null ? field.getTextContent() : fields[3];
+                    default -> {
+                    }
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Reads the fields of a BaseX player node in one pass over its child elements.
+     */
+    private static String[] xmlPlayerFields(ANode playerNode){
+        byte[] id = playerNode.attribute(Token.token("id"));
+        String[] fields = {id == null ? null : Token.string(id), null, null, null};
+        for (ANode field : playerNode.childIter()) {
+            if (field.nodeType() == NodeType.ELEMENT) {
+                switch (Token.string(field.name())) {
+                    case "region" -> fields[1] = fields[1] == null ? Token.string(field.string()) : fields[1];
+                    case "server" -> fields[2] = fields[2] == null ? Token.string(field.string()) : fields[2];
+                    case "name" -> fields[3] = fields[3] == null ? Token.string(field.string()) : fields[3];
+                    default -> {
+                    }
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Reads the fields of the player the StAX reader is positioned on and leaves the reader on its end tag.
+     */
+    private static String[] xmlPlayerFields(XMLStreamReader reader){
+        String[] fields = {reader.getAttributeValue(null, "id"), null, null, null};
+        try {
+            int depth = 1;
+            while (depth > 0) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        if (depth == 1) {
+                            String name = reader.getLocalName();
+                            String text = reader.getElementText();
+                            switch (name) {
+                                case "region" -> fields[1] = fields[1] == null ? text : fields[1];
+                                case "server" -> fields[2] = fields[2] == null ? text : fields[2];
+                                case "name" -> fields[3] = fields[3] == null ? text : fields[3];
+                                default -> {
+                                }
+                            }
+                        } else {
+                            depth++;
+                        }
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> depth--;
+                    default -> {
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new DataCorruptedException(e.getMessage());
+        }
+        return fields;
+    }
+
+    /**
+     * Writes the {@code <Player>} root and one {@code <player>} element per player straight into the writer.
+     */
+    private void playerToXmlWriter(XmlElementWriter writer, DataOperation operation, Map<Integer, VerifiedEntity> dataMap){
+        try {
+            writer.startElement("Player");
+            for (VerifiedEntity verifiedEntity : dataMap.values()) {
+                Player player = (Player) verifiedEntity;
+                writer.startElement("player")
+                        .attribute("id", String.valueOf(player.getID()))
+                        .textElement("region", String.valueOf(player.getRegion()))
+                        .textElement("server", String.valueOf(player.getServer()))
+                        .textElement("name", player.getName())
+                        .endElement();
+            }
+            writer.endElement();
+        } catch (IOException e) {
+            throw new FileManageException("Error writing this xml file.>>>" + e.getMessage());
+        }
+    }
+
     private void playerToBaseXQuery(String[] query, DataOperation operation, VerifiedEntity verifiedEntity){
         Player player = (Player) verifiedEntity;
         query[0] = switch (operation){
@@ -220,8 +458,8 @@ public class PlayerParser implements EntityParser {
             JSONObject playerObject = (JSONObject) object;
             player.setID(Integer.parseInt(playerObject.get("id").toString()));
             player.setName(playerObject.get("name").toString());
-            player.setRegion(new Region(playerObject.get("region").toString()));
-            player.setServer(new Server(playerObject.get("server").toString(), player.getRegion()));
+            player.setRegion(RegionServerRegistry.region(playerObject.get("region").toString()));
+            player.setServer(RegionServerRegistry.server(playerObject.get("server").toString(), player.getRegion()));
             dataMap.put(player.getID(), player);
         }
     }
@@ -231,8 +469,8 @@ public class PlayerParser implements EntityParser {
         Player player = (Player) verifiedEntity;
         jsonObject.put("id", player.getID());
         jsonObject.put("name", player.getName());
-        jsonObject.put("region", player.getRegion().toString());
-        jsonObject.put("server", player.getServer().toString());
+        jsonObject.put("region", String.valueOf(player.getRegion()));
+        jsonObject.put("server", String.valueOf(player.getServer()));
         jsonObject.put("operation", operation.toString());
     }
 
@@ -0,0 +1,71 @@
+package data;
+
+import model.Region;
+import model.Server;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide table of canonical {@code Region} and {@code Server} instances.
+ * <p>
+ * There are only a handful of distinct regions and servers, so the parsers share one instance per
+ * name instead of allocating a pair for every player row; equal regions and servers are then also the
+ * same object, which makes their {@code equals} an identity check. The table is seeded with the
+ * region/server map of {@code PlayerDAO} and is safe to use from the parallel TXT parsing threads.
+ * @author SIN
+ */
+public class RegionServerRegistry {
+    private static final ConcurrentHashMap<String, Region> REGIONS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Region, ConcurrentHashMap<String, Server>> SERVERS = new ConcurrentHashMap<>();
+
+    private RegionServerRegistry() {
+    }
+
+    /**
+     * Returns the canonical {@code Region} with the given name, creating it on first use.
+     * A {@code null} name, which only comes from corrupted data, yields a new unshared instance.
+     */
+    public static Region region(String name) {
+        if (name == null) {
+            return new Region(null);
+        }
+        Region region = REGIONS.get(name);
+        return region != null ? region : REGIONS.computeIfAbsent(name, Region::new);
+    }
+
+    /**
+     * Returns the canonical {@code Server} with the given name in the given region, creating it on first use.
+     *
+     * @param region a region obtained from {@link #region(String)}
+     */
+    public static Server server(String name, Region region) {
+        if (name == null || region.getName() == null) {
+            return new Server(name, region);
+        }
+        ConcurrentHashMap<String, Server> servers = SERVERS.get(region);
+        if (servers == null) {
+            servers = SERVERS.computeIfAbsent(region, _ -> new ConcurrentHashMap<>());
+        }
+        Server server = servers.get(name);
+        return server != null ? server : servers.computeIfAbsent(name, _ -> new Server(name, region));
+    }
+
+    /**
+     * Registers the regions and servers of a region/server map and returns the same map built from the
+     * canonical instances, so players parsed afterwards share the objects the map holds.
+     */
+    public static HashMap<Region, Server[]> seed(Map<Region, Server[]> regionServerMap) {
+        HashMap<Region, Server[]> canonicalMap = new HashMap<>();
+        regionServerMap.forEach((region, servers) -> {
+            Region canonicalRegion = region(region.getName());
+            Server[] canonicalServers = new Server[servers.length];
+            for (int i = 0; i < servers.length; i++) {
+                canonicalServers[i] = server(servers[i].getName(), canonicalRegion);
+            }
+            canonicalMap.put(canonicalRegion, canonicalServers);
+        });
+        return canonicalMap;
+    }
+}
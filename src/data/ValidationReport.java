@@ -0,0 +1,70 @@
+package data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Result of validating a batch of entities: how many were checked and, for every invalid one,
+ * its ID and the reason it was rejected, in ascending ID order.
+ * @author SIN
+ */
+public class ValidationReport {
+    private static final int LISTED_IN_SUMMARY = 10;
+    private final int checkedCount;
+    private final IntSortedMap<String> invalidReasons;
+
+    public ValidationReport(int checkedCount, IntSortedMap<String> invalidReasons) {
+        this.checkedCount = checkedCount;
+        this.invalidReasons = invalidReasons;
+    }
+
+    public boolean isValid() {
+        return invalidReasons.isEmpty();
+    }
+
+    public int getCheckedCount() {
+        return checkedCount;
+    }
+
+    /**
+     * @return the reason of every invalid entity, keyed by its ID
+     */
+    public IntSortedMap<String> getInvalidReasons() {
+        return invalidReasons;
+    }
+
+    /**
+     * @return the number of invalid entities per reason
+     */
+    public Map<String, Integer> countByReason() {
+        HashMap<String, Integer> counts = new HashMap<>();
+        invalidReasons.forEachEntry((reason, _) -> counts.merge(reason, 1, Integer::sum));
+        return counts;
+    }
+
+    /**
+     * Describes the report in one line, listing the first invalid IDs with their reasons.
+     */
+    public String summary() {
+        if (isValid()) {
+            return "All %d entities are valid".formatted(checkedCount);
+        }
+        StringBuilder summary = new StringBuilder("%d of %d entities are invalid: ".formatted(invalidReasons.size(), checkedCount));
+        int[] listed = {0};
+        invalidReasons.forEachEntry((reason, id) -> {
+            if (listed[0] < LISTED_IN_SUMMARY) {
+                summary.append(listed[0] == 0 ? "" : "; ").append("ID ").append(id).append(": ").append(reason);
+            }
+            listed[0]++;
+        });
+        if (listed[0] > LISTED_IN_SUMMARY) {
+            summary.append("; ...");
+        }
+        return summary.toString();
+    }
+
+    @Override
+    public String toString() {
+        return summary();
+    }
+}
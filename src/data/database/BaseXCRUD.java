@@ -1,27 +1,37 @@
 package data.database;
 
+import Interface.EntityCursor;
 import Interface.GeneralCRUD;
 import Interface.ParserCallBack;
-import data.CRUDFactory;
+import Interface.VerifiedEntity;
 import data.DataOperation;
-import data.file.FileType;
+import data.ParsingCursor;
 import exceptions.DatabaseException;
 import exceptions.OperationException;
 import model.DataInfo;
 import org.basex.core.BaseXException;
 import org.basex.core.Context;
-import org.basex.core.cmd.Open;
 import org.basex.core.cmd.XQuery;
+import org.basex.query.QueryException;
+import org.basex.query.QueryProcessor;
+import org.basex.query.iter.Iter;
+import org.basex.query.value.item.Item;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.StringJoiner;
 import java.util.TreeMap;
 
+import static main.principal.getProperty;
+
 /**
  * @author SIN
  */
 
 @SuppressWarnings("unused")
 public class BaseXCRUD implements GeneralCRUD<DataInfo> {
-    private final Context context = new Context();
+    private Context context;
     private final DataInfo dataInfo;
 
     public BaseXCRUD(DataInfo dataInfo) {
@@ -30,40 +40,108 @@ public class BaseXCRUD implements GeneralCRUD<DataInfo> {
 
     @Override
     public GeneralCRUD<DataInfo> prepare() {
-        try {
-            new Open(dataInfo.getDatabase()).execute(context);
-            return this;
-        } catch (BaseXException e) {
-            throw new DatabaseException(e.getMessage());
-        }
+        context = BaseXContextPool.borrow(dataInfo.getDatabase());
+        return this;
     }
 
     @Override
     public void release() {
-        context.close();
+        BaseXContextPool.giveBack(dataInfo.getDatabase(), context);
+        context = null;
     }
 
+    /**
+     * Iterates the items of the query result with the BaseX query processor and hands every node
+     * to the parser as it is, without serializing the result to a string and parsing it again.
+     * READ iterates the child elements of the database root one by one.
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public <R, U> GeneralCRUD<DataInfo> read(ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
+        String query = switch (dataOperation){
+            case READ -> "%s/*".formatted(dataInfo.getDatabase());
+            case SEARCH -> dataInfo.getQuerySearch().formatted(String.valueOf(((TreeMap<?, ?>) dataContainer).firstKey()));
+            default -> throw new OperationException("Unexpected DataOperation for reading: " + dataOperation);
+        };
+        QueryProcessor processor = openQuery(query);
         try {
-            String result = switch (dataOperation){
-                case READ -> new XQuery(dataInfo.getDatabase()).execute(context);
-                case SEARCH -> new XQuery(dataInfo.getQuerySearch().formatted(String.valueOf(((TreeMap<?, ?>) dataContainer).firstKey()))).execute(context);
-                default -> throw new OperationException("Unexpected DataOperation for reading: " + dataOperation);
-            };
-            DataInfo tempDataInfo = new DataInfo();
-            tempDataInfo.setDataType(FileType.XML);
-            tempDataInfo.setUrl(result);
-            CRUDFactory.getCRUD(tempDataInfo)
-                    .prepare()
-                    .read(parser, dataOperation, dataContainer)
-                    .release();
-        } catch (BaseXException e) {
+            Iter items = processor.iter();
+            for(Item item; (item = items.next()) != null;){
+                parser.parse((R) item, dataOperation, dataContainer);
+            }
+        } catch (QueryException e) {
             throw new DatabaseException(e.getMessage());
+        } finally {
+            closeQuery(processor);
         }
         return this;
     }
 
+    /**
+     * Streams the child elements of the database root straight from the query iterator.
+     * The query keeps its read lock on the database until the cursor is closed.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> EntityCursor<VerifiedEntity> cursor(ParserCallBack<R, TreeMap<Integer, VerifiedEntity>> parser) {
+        QueryProcessor processor = openQuery("%s/*".formatted(dataInfo.getDatabase()));
+        try {
+            Iter items = processor.iter();
+            Iterator<R> rows = new Iterator<>() {
+                private Item nextItem = null;
+
+                @Override
+                public boolean hasNext() {
+                    if (nextItem == null) {
+                        try {
+                            nextItem = items.next();
+                        } catch (QueryException e) {
+                            throw new DatabaseException(e.getMessage());
+                        }
+                    }
+                    return nextItem != null;
+                }
+
+                @Override
+                public R next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Item current = nextItem;
+                    nextItem = null;
+                    return (R) current;
+                }
+            };
+            return new ParsingCursor<>(rows, parser, () -> closeQuery(processor));
+        } catch (QueryException e) {
+            closeQuery(processor);
+            throw new DatabaseException(e.getMessage());
+        }
+    }
+
+    /**
+     * Parses the query and registers it on the context, which acquires the database locks it needs.
+     */
+    private QueryProcessor openQuery(String query) {
+        QueryProcessor processor = new QueryProcessor(query, context);
+        try {
+            processor.parse();
+        } catch (QueryException e) {
+            processor.close();
+            throw new DatabaseException(e.getMessage());
+        }
+        processor.register(context);
+        return processor;
+    }
+
+    private void closeQuery(QueryProcessor processor) {
+        try {
+            processor.unregister(context);
+        } finally {
+            processor.close();
+        }
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <R, U> GeneralCRUD<DataInfo> update(ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
@@ -77,4 +155,34 @@ public class BaseXCRUD implements GeneralCRUD<DataInfo> {
         return this;
     }
 
+    /**
+     * Combines the updating expressions of up to {@code batchSize} objects into one XQuery,
+     * so BaseX applies them as a single pending update list instead of one query per object.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R, U> GeneralCRUD<DataInfo> updateBatch(ParserCallBack<R, U> parser, DataOperation dataOperation, Collection<U> dataContainers) {
+        int batchSize = Integer.parseInt(getProperty("batchSize"));
+        try {
+            StringJoiner combinedQuery = new StringJoiner(",\n");
+            int pending = 0;
+            for(U dataContainer : dataContainers){
+                String[] query = new String[1];
+                parser.parse((R)query, dataOperation, dataContainer);
+                combinedQuery.add(query[0]);
+                if(++pending == batchSize){
+                    new XQuery(combinedQuery.toString()).execute(context);
+                    combinedQuery = new StringJoiner(",\n");
+                    pending = 0;
+                }
+            }
+            if(pending > 0){
+                new XQuery(combinedQuery.toString()).execute(context);
+            }
+        } catch (BaseXException e) {
+            throw new DatabaseException(e.getMessage());
+        }
+        return this;
+    }
+
 }
@@ -0,0 +1,94 @@
+package data.database;
+
+import exceptions.DatabaseException;
+import org.basex.core.BaseXException;
+import org.basex.core.Context;
+import org.basex.core.cmd.Open;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static main.principal.getProperty;
+
+/**
+ * Pool of BaseX {@code Context} instances that already have their database opened.
+ * <p>
+ * Every pooled context is a child of one shared main context. Children share the main context's
+ * opened databases and its {@code Locking}, so BaseX still serializes updating queries against
+ * concurrent readers and writers of the same database, while a borrowed context skips the
+ * {@code Open} command and the reload of database metadata and indexes.
+ * At most {@code basexPoolSize} idle contexts are kept per database name.
+ * @author SIN
+ */
+public class BaseXContextPool {
+    private static final Context MAIN_CONTEXT = new Context();
+    private static final ConcurrentHashMap<String, ArrayDeque<Context>> IDLE_CONTEXTS = new ConcurrentHashMap<>();
+
+    private BaseXContextPool() {
+    }
+
+    /**
+     * Borrows a context with the given database opened, reusing an idle one when available.
+     * Idle contexts whose database was closed in the meantime are closed and discarded.
+     *
+     * @param database the name of the BaseX database
+     * @return a context whose current database is {@code database}
+     * @throws DatabaseException if the database cannot be opened
+     */
+    public static Context borrow(String database) throws DatabaseException {
+        ArrayDeque<Context> idleContexts = IDLE_CONTEXTS.computeIfAbsent(database, _ -> new ArrayDeque<>());
+        synchronized (idleContexts) {
+            Context idle;
+            while ((idle = idleContexts.pollLast()) != null) {
+                if (idle.data() != null) {
+                    return idle;
+                }
+                idle.close();
+            }
+        }
+        Context context = new Context(MAIN_CONTEXT);
+        context.user(MAIN_CONTEXT.user());
+        try {
+            new Open(database).execute(context);
+            return context;
+        } catch (BaseXException e) {
+            context.close();
+            throw new DatabaseException(e.getMessage());
+        }
+    }
+
+    /**
+     * Returns a borrowed context to the pool of its database. The context is closed instead
+     * if the pool is already full.
+     *
+     * @param database the name of the BaseX database the context was borrowed for
+     * @param context the context previously obtained from {@link #borrow(String)}
+     */
+    public static void giveBack(String database, Context context) {
+        if (context == null) {
+            return;
+        }
+        ArrayDeque<Context> idleContexts = IDLE_CONTEXTS.computeIfAbsent(database, _ -> new ArrayDeque<>());
+        synchronized (idleContexts) {
+            if (idleContexts.size() < Integer.parseInt(getProperty("basexPoolSize"))) {
+                idleContexts.addLast(context);
+                return;
+            }
+        }
+        context.close();
+    }
+
+    /**
+     * Closes every pooled context and the shared main context. Intended to be called once on shutdown.
+     */
+    public static void closeAll() {
+        IDLE_CONTEXTS.values().forEach(idleContexts -> {
+            synchronized (idleContexts) {
+                idleContexts.forEach(Context::close);
+                idleContexts.clear();
+            }
+        });
+        IDLE_CONTEXTS.clear();
+        MAIN_CONTEXT.close();
+    }
+}
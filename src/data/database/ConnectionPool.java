@@ -0,0 +1,210 @@
+package data.database;
+
+import exceptions.DatabaseException;
+import model.DataInfo;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static main.principal.getProperty;
+
+/**
+ * Keeps long-lived JDBC connections alive between operations so that {@code DatabaseCRUD}
+ * does not pay a full handshake on every read or update.
+ * <p>
+ * One pool exists per connection identity (dialect, URL and user). Connections are validated
+ * when borrowed, idle connections above the configured minimum are evicted after
+ * {@code poolIdleTimeout} milliseconds, and no more than {@code poolMaxSize} connections are
+ * opened at the same time.
+ * @author SIN
+ */
+public class ConnectionPool {
+    private static final ConcurrentHashMap<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+    private final ArrayDeque<IdleConnection> idleConnections = new ArrayDeque<>();
+    private final SqlDialect dialect;
+    private final String url;
+    private final String user;
+    private volatile String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeout;
+    private final long borrowTimeout;
+    private final int validationTimeout;
+    private int openConnections = 0;
+    private boolean closed = false;
+
+    private record IdleConnection(Connection connection, long idleSince) {
+    }
+
+    private ConnectionPool(SqlDialect dialect, String url, String user) {
+        this.dialect = dialect;
+        this.url = url;
+        this.user = user;
+        minSize = Integer.parseInt(getProperty("poolMinSize"));
+        maxSize = Integer.parseInt(getProperty("poolMaxSize"));
+        idleTimeout = Long.parseLong(getProperty("poolIdleTimeout"));
+        borrowTimeout = Long.parseLong(getProperty("poolBorrowTimeout"));
+        validationTimeout = Integer.parseInt(getProperty("poolValidationTimeout"));
+    }
+
+    /**
+     * Returns the pool matching the connection identity of the given {@code DataInfo},
+     * creating it on first use. The password is refreshed on every lookup so that new
+     * physical connections always use the latest credentials typed by the user.
+     *
+     * @param dataInfo the database information describing dialect, URL, port, database and user
+     * @return the shared pool for this connection identity
+     */
+    public static ConnectionPool of(DataInfo dataInfo) {
+        String url = switch (dataInfo.getDialect()) {
+            case MYSQL -> "%s:%s/%s".formatted(dataInfo.getUrl(), dataInfo.getPort(), dataInfo.getDatabase());
+            case SQLITE -> dataInfo.getUrl();
+            default -> throw new DatabaseException("Unsupported SQL dialect: " + dataInfo.getDialect());
+        };
+        String key = "%s|%s|%s".formatted(dataInfo.getDialect(), url, dataInfo.getUser());
+        ConnectionPool pool = POOLS.computeIfAbsent(key, _ -> new ConnectionPool(dataInfo.getDialect(), url, dataInfo.getUser()));
+        pool.password = dataInfo.getPassword();
+        return pool;
+    }
+
+    /**
+     * Borrows a validated connection from the pool. Idle connections are reused first,
+     * a new one is opened when the pool has not reached its maximum size, otherwise the
+     * caller waits up to {@code poolBorrowTimeout} milliseconds for a connection to be returned.
+     *
+     * @return an open connection with auto-commit disabled
+     * @throws DatabaseException if the pool is closed, exhausted or a connection cannot be opened
+     */
+    public synchronized Connection borrow() throws DatabaseException {
+        long deadline = System.currentTimeMillis() + borrowTimeout;
+        while (!closed) {
+            evictIdle();
+            IdleConnection idle = idleConnections.pollLast();
+            if (idle != null) {
+                if (isValid(idle.connection())) {
+                    return idle.connection();
+                }
+                discard(idle.connection());
+                continue;
+            }
+            if (openConnections < maxSize) {
+                Connection connection = openConnection();
+                openConnections++;
+                return connection;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new DatabaseException("Connection pool exhausted for " + url);
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DatabaseException("Interrupted while waiting for a connection");
+            }
+        }
+        throw new DatabaseException("Connection pool is closed");
+    }
+
+    /**
+     * Returns a borrowed connection to the pool. Any uncommitted work is rolled back so the
+     * next borrower always starts from a clean transaction.
+     *
+     * @param connection the connection previously obtained from {@link #borrow()}
+     */
+    public synchronized void giveBack(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            if (closed || connection.isClosed()) {
+                discard(connection);
+            } else {
+                connection.rollback();
+                idleConnections.addLast(new IdleConnection(connection, System.currentTimeMillis()));
+            }
+        } catch (SQLException e) {
+            discard(connection);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Closes every idle connection of every pool and prevents further borrowing.
+     * Connections still borrowed are closed when they are given back.
+     */
+    public static void closeAll() {
+        POOLS.values().forEach(ConnectionPool::close);
+        POOLS.clear();
+    }
+
+    private synchronized void close() {
+        closed = true;
+        idleConnections.forEach(idle -> discard(idle.connection()));
+        idleConnections.clear();
+        notifyAll();
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<IdleConnection> iterator = idleConnections.iterator();
+        while (iterator.hasNext() && openConnections > minSize) {
+            IdleConnection idle = iterator.next();
+            if (now - idle.idleSince() >= idleTimeout) {
+                iterator.remove();
+                discard(idle.connection());
+            }
+        }
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(validationTimeout);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens a physical connection. The MySQL driver options are passed as connection properties
+     * rather than appended to the URL, so a database name that already carries URL parameters stays
+     * valid: {@code rewriteBatchedStatements} lets JDBC batches go out as multi-row statements and
+     * {@code useCursorFetch} makes the fetch size of streaming reads effective.
+     */
+    private Connection openConnection() throws DatabaseException {
+        try {
+            Connection connection = switch (dialect) {
+                case MYSQL -> {
+                    Properties properties = new Properties();
+                    if (user != null) {
+                        properties.setProperty("user", user);
+                    }
+                    if (password != null) {
+                        properties.setProperty("password", password);
+                    }
+                    properties.setProperty("rewriteBatchedStatements", "true");
+                    properties.setProperty("useCursorFetch", "true");
+                    yield DriverManager.getConnection(url, properties);
+                }
+                default -> DriverManager.getConnection(url);
+            };
+            connection.setAutoCommit(false);
+            return connection;
+        } catch (SQLException e) {
+            throw new DatabaseException(e.getMessage());
+        }
+    }
+
+    private void discard(Connection connection) {
+        openConnections--;
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package data.database;
 
+import Interface.EntityCursor;
 import Interface.GeneralCRUD;
 import Interface.ParserCallBack;
+import Interface.VerifiedEntity;
 import data.DataOperation;
+import data.ParsingCursor;
 import exceptions.DatabaseException;
 import exceptions.OperationException;
 import model.DataInfo;
@@ -12,12 +15,15 @@ import model.Server;
 import java.sql.*;
 import java.util.*;
 
+import static main.principal.getProperty;
+
 /**
  * @author SIN
  */
 @SuppressWarnings("unused")
 public class DatabaseCRUD implements GeneralCRUD<DataInfo> {
     private Connection connection = null;
+    private ConnectionPool connectionPool = null;
     private final DataInfo dataInfo;
 
     public DatabaseCRUD(DataInfo dataInfo) {
@@ -26,24 +32,8 @@ public class DatabaseCRUD implements GeneralCRUD<DataInfo> {
 
     @Override
     public GeneralCRUD<DataInfo> prepare() throws DatabaseException {
-        try {
-            switch (dataInfo.getDialect()){
-                case MYSQL:
-                    connection = DriverManager.getConnection("%s:%s/%s".formatted(
-                                    dataInfo.getUrl(),
-                                    dataInfo.getPort(),
-                                    dataInfo.getDatabase()),
-                            dataInfo.getUser(),
-                            dataInfo.getPassword());
-                    break;
-                case SQLITE:
-                    connection = DriverManager.getConnection(dataInfo.getUrl());
-                    break;
-            }
-            connection.setAutoCommit(false);
-        } catch (SQLException e) {
-            throw new DatabaseException(e.getMessage());
-        }
+        connectionPool = ConnectionPool.of(dataInfo);
+        connection = connectionPool.borrow();
         if(connection != null){
             return this;
         }else{
@@ -51,13 +41,17 @@ public class DatabaseCRUD implements GeneralCRUD<DataInfo> {
         }
     }
 
+    /**
+     * Gives the connection back to the pool it was borrowed from, which discards it if that pool
+     * has been closed in the meantime.
+     */
     @Override
     public void release() {
-        try {
-            connection.close();
-        } catch (SQLException e) {
-            throw new DatabaseException("Error closing connection");
+        if(connectionPool != null){
+            connectionPool.giveBack(connection);
         }
+        connection = null;
+        connectionPool = null;
     }
 
     /**
@@ -96,6 +90,51 @@ public class DatabaseCRUD implements GeneralCRUD<DataInfo> {
         return this;
     }
 
+    /**
+     * Streams the table through a forward-only, read-only {@code ResultSet} fetched
+     * {@code cursorFetchSize} rows at a time. The statement is closed with the cursor.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> EntityCursor<VerifiedEntity> cursor(ParserCallBack<R, TreeMap<Integer, VerifiedEntity>> parser) {
+        if(connection == null){
+            throw new DatabaseException("Database is not connected");
+        }
+        try {
+            PreparedStatement statement = connection.prepareStatement("SELECT * FROM %s".formatted(dataInfo.getTable()),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(Integer.parseInt(getProperty("cursorFetchSize")));
+            ResultSet resultSet = statement.executeQuery();
+            Iterator<R> rows = new Iterator<>() {
+                private boolean hasRow = false;
+
+                @Override
+                public boolean hasNext() {
+                    try {
+                        if(!hasRow){
+                            hasRow = resultSet.next();
+                        }
+                        return hasRow;
+                    } catch (SQLException e) {
+                        throw new DatabaseException("Cannot read from database. Cause: " + e.getMessage());
+                    }
+                }
+
+                @Override
+                public R next() {
+                    if(!hasNext()){
+                        throw new NoSuchElementException();
+                    }
+                    hasRow = false;
+                    return (R) resultSet;
+                }
+            };
+            return new ParsingCursor<>(rows, parser, statement);
+        } catch (SQLException e) {
+            throw new DatabaseException("Cannot read from database. Cause: " + e.getMessage());
+        }
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <R, U> GeneralCRUD<DataInfo> update(ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
@@ -115,6 +154,48 @@ public class DatabaseCRUD implements GeneralCRUD<DataInfo> {
         return this;
     }
 
+    /**
+     * Executes the operation for every object as a JDBC batch inside a single transaction.
+     * Statements are sent every {@code batchSize} rows and committed once at the end;
+     * any failure rolls back the whole batch.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R, U> GeneralCRUD<DataInfo> updateBatch(ParserCallBack<R, U> parser, DataOperation dataOperation, Collection<U> dataContainers) {
+        if(dataContainers.isEmpty()){
+            return this;
+        }
+        String query = switch (dataOperation){
+            case ADD -> dataInfo.getQueryADD();
+            case MODIFY -> dataInfo.getQueryModify();
+            case DELETE -> dataInfo.getQueryDelete();
+            default -> throw new OperationException("Unexpected DataOperation for updating: " + dataOperation);
+        };
+        int batchSize = Integer.parseInt(getProperty("batchSize"));
+        try(PreparedStatement statement = connection.prepareStatement(query)){
+            int pending = 0;
+            for(U dataContainer : dataContainers){
+                parser.parse((R)statement, dataOperation, dataContainer);
+                statement.addBatch();
+                if(++pending == batchSize){
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if(pending > 0){
+                statement.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+            }
+            throw new DatabaseException(e.getMessage());
+        }
+        return this;
+    }
+
     /**
      * Reads the region-server configuration from the database using a query.
      * The method retrieves regions and their associated servers,
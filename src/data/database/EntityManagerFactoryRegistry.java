@@ -0,0 +1,51 @@
+package data.database;
+
+import exceptions.DatabaseException;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of ObjectDB {@code EntityManagerFactory} instances, one per database URL.
+ * <p>
+ * Opening an {@code EntityManagerFactory} opens the ODB file and loads its schema, so
+ * {@code ObjectDBCRUD} asks this registry for a factory instead of creating one per operation.
+ * Factories stay open until {@link #closeAll()} is called on shutdown.
+ * @author SIN
+ */
+public class EntityManagerFactoryRegistry {
+    private static final ConcurrentHashMap<String, EntityManagerFactory> ENTITY_MANAGER_FACTORIES = new ConcurrentHashMap<>();
+
+    private EntityManagerFactoryRegistry() {
+    }
+
+    /**
+     * Returns the open {@code EntityManagerFactory} for the given ODB URL, creating it on first use
+     * or if the previously cached one has been closed.
+     *
+     * @param url the ObjectDB database URL or file path
+     * @return the shared {@code EntityManagerFactory} for this URL
+     * @throws DatabaseException if the factory cannot be created
+     */
+    public static EntityManagerFactory get(String url) throws DatabaseException {
+        try {
+            return ENTITY_MANAGER_FACTORIES.compute(url, (_, current) ->
+                    current == null || !current.isOpen() ? Persistence.createEntityManagerFactory(url) : current);
+        } catch (Exception e) {
+            throw new DatabaseException(e.getMessage());
+        }
+    }
+
+    /**
+     * Closes and unregisters every cached {@code EntityManagerFactory}. Intended to be called once on shutdown.
+     */
+    public static void closeAll() {
+        ENTITY_MANAGER_FACTORIES.values().forEach(entityManagerFactory -> {
+            if (entityManagerFactory.isOpen()) {
+                entityManagerFactory.close();
+            }
+        });
+        ENTITY_MANAGER_FACTORIES.clear();
+    }
+}
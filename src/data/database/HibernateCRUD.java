@@ -1,13 +1,16 @@
 package data.database;
 
+import Interface.EntityCursor;
 import Interface.GeneralCRUD;
 import Interface.ParserCallBack;
 import Interface.VerifiedEntity;
 import data.DataOperation;
+import data.ParsingCursor;
 import exceptions.DatabaseException;
 import exceptions.OperationException;
 import model.DataInfo;
-import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
@@ -15,7 +18,11 @@ import org.hibernate.cfg.Configuration;
 import org.hibernate.query.Query;
 
 import java.net.URL;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.TreeMap;
 
 import static main.principal.getProperty;
@@ -34,50 +41,56 @@ public class HibernateCRUD implements GeneralCRUD<DataInfo> {
     }
 
     /**
-     * Establishes a Hibernate-based connection to a database using the provided {@code DatabaseInfo}.
-     * The method determines the SQL dialect (e.g., {@code MYSQL}, {@code SQLITE}) and configures the
-     * connection parameters accordingly, including database URL, username, and password. It attempts
-     * to build the Hibernate session factory and verifies if the session is successfully opened.
-     * Logs the connection activity and throws a {@code DatabaseException} if there is an error during
-     * the connection setup.
+     * Obtains the Hibernate {@code SessionFactory} for the provided {@code DatabaseInfo} from the
+     * {@code SessionFactoryRegistry}. The factory is only built the first time a connection identity
+     * (SQL dialect, database URL and username) is used; later operations share the same instance,
+     * so the Hibernate bootstrap and schema update run once per process instead of once per operation.
      *
-     * @return {@code true} if the Hibernate session is successfully opened;
-     *         otherwise throws a {@code DatabaseException}.
+     * @return this {@code HibernateCRUD} bound to the shared {@code SessionFactory}.
      * @throws DatabaseException if the connection fails due to errors in configuration,
      *                           invalid credentials, or exceptions during session factory creation.
      */
     @Override
     public GeneralCRUD<DataInfo> prepare() throws DatabaseException {
+        String key = "%s|%s|%s".formatted(dataInfo.getDialect(), getConnectionURL(), dataInfo.getUser());
+        sessionFactory = SessionFactoryRegistry.get(key, this::buildSessionFactory);
+        return this;
+    }
+
+    /**
+     * The {@code SessionFactory} is shared through the {@code SessionFactoryRegistry} and is only
+     * closed on shutdown, so releasing a {@code HibernateCRUD} just drops its reference.
+     */
+    @Override
+    public void release() {
+        sessionFactory = null;
+    }
+
+    @Override
+    public boolean isReusable() {
+        return true;
+    }
+
+    private SessionFactory buildSessionFactory() {
         URL resource = getClass().getResource(getProperty("hibernateConfig"));
         configuration.configure(resource);
-        switch (dataInfo.getDialect()){
-            case MYSQL:
-                setURL("%s:%s/%s".formatted(
-                        dataInfo.getUrl(),
-                        dataInfo.getPort(),
-                        dataInfo.getDatabase()));
-                setUser(dataInfo.getUser());
-                setPassword(dataInfo.getPassword());
-                break;
-            case SQLITE:
-                setURL(dataInfo.getUrl());
-                break;
-        }
-        try {
-            sessionFactory = configuration.buildSessionFactory();
-            if(sessionFactory != null){
-                return this;
-            }else{
-                throw new DatabaseException("SessionFactory is null");
-            }
-        } catch (HibernateException e) {
-            throw new DatabaseException(e.getMessage());
+        setURL(getConnectionURL());
+        if(dataInfo.getDialect() == SqlDialect.MYSQL){
+            setUser(dataInfo.getUser());
+            setPassword(dataInfo.getPassword());
         }
+        return configuration.buildSessionFactory();
     }
 
-    @Override
-    public void release() {
-        sessionFactory.close();
+    private String getConnectionURL() {
+        return switch (dataInfo.getDialect()){
+            case MYSQL -> "%s:%s/%s".formatted(
+                    dataInfo.getUrl(),
+                    dataInfo.getPort(),
+                    dataInfo.getDatabase());
+            case SQLITE -> dataInfo.getUrl();
+            default -> throw new DatabaseException("Unsupported SQL dialect: " + dataInfo.getDialect());
+        };
     }
 
     /**
@@ -114,6 +127,75 @@ public class HibernateCRUD implements GeneralCRUD<DataInfo> {
         return this;
     }
 
+    /**
+     * Reads the fingerprinted fields through the {@code text_query_fingerprint} projection, so the parser
+     * gets {@code Object[]} rows and no entities are loaded. Falls back to a full read when no projection
+     * is configured.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> GeneralCRUD<DataInfo> readFingerprints(ParserCallBack<R, HashMap<Integer, Long>> parser, HashMap<Integer, Long> fingerprints) {
+        if(dataInfo.getQueryFingerprint() == null){
+            return read(parser, DataOperation.READ, fingerprints);
+        }
+        try (Session session = sessionFactory.openSession()) {
+            List<Object[]> rows = session.createQuery(dataInfo.getQueryFingerprint(), Object[].class).getResultList();
+            parser.parse((R)rows, DataOperation.READ, fingerprints);
+        }catch (Exception e){
+            throw new DatabaseException(e.getMessage());
+        }
+        return this;
+    }
+
+    /**
+     * Streams the players through Hibernate {@code ScrollableResults} in a read-only session.
+     * The session is cleared every {@code cursorFetchSize} rows so it does not keep every entity,
+     * and it is closed together with the cursor.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> EntityCursor<VerifiedEntity> cursor(ParserCallBack<R, TreeMap<Integer, VerifiedEntity>> parser) {
+        int fetchSize = Integer.parseInt(getProperty("cursorFetchSize"));
+        Session session = sessionFactory.openSession();
+        try {
+            ScrollableResults<VerifiedEntity> results = session.createQuery(dataInfo.getQueryRead(), VerifiedEntity.class)
+                    .setReadOnly(true)
+                    .setFetchSize(fetchSize)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            Iterator<R> rows = new Iterator<>() {
+                private boolean hasRow = false;
+                private int rowCount = 0;
+
+                @Override
+                public boolean hasNext() {
+                    if(!hasRow){
+                        hasRow = results.next();
+                    }
+                    return hasRow;
+                }
+
+                @Override
+                public R next() {
+                    if(!hasNext()){
+                        throw new NoSuchElementException();
+                    }
+                    hasRow = false;
+                    if(++rowCount % fetchSize == 0){
+                        session.clear();
+                    }
+                    return (R) List.of(results.get());
+                }
+            };
+            return new ParsingCursor<>(rows, parser, () -> {
+                results.close();
+                session.close();
+            });
+        } catch (Exception e) {
+            session.close();
+            throw new DatabaseException(e.getMessage());
+        }
+    }
+
     @Override
     public <R, U> GeneralCRUD<DataInfo> update(ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
         Transaction transaction = null;
@@ -122,7 +204,42 @@ public class HibernateCRUD implements GeneralCRUD<DataInfo> {
             switch(dataOperation){
                 case ADD -> session.persist(dataContainer);
                 case MODIFY -> session.merge(dataContainer);
-                case DELETE -> session.remove(dataContainer);
+                case DELETE -> remove(session, dataContainer);
+            }
+            transaction.commit();
+        }catch(Exception e){
+            if(transaction != null){
+                transaction.rollback();
+            }
+            throw new DatabaseException(e.getMessage());
+        }
+        return this;
+    }
+
+    /**
+     * Applies the operation to every object in one session and one transaction. The session is
+     * flushed and cleared every {@code batchSize} objects so the statements go out as JDBC batches
+     * and the persistence context does not grow with the collection.
+     */
+    @Override
+    public <R, U> GeneralCRUD<DataInfo> updateBatch(ParserCallBack<R, U> parser, DataOperation dataOperation, Collection<U> dataContainers) {
+        int batchSize = Integer.parseInt(getProperty("batchSize"));
+        Transaction transaction = null;
+        try(Session session = sessionFactory.openSession()){
+            transaction = session.beginTransaction();
+            int pending = 0;
+            for(U dataContainer : dataContainers){
+                switch(dataOperation){
+                    case ADD -> session.persist(dataContainer);
+                    case MODIFY -> session.merge(dataContainer);
+                    case DELETE -> remove(session, dataContainer);
+                    default -> throw new OperationException("Unexpected DataOperation for updating: " + dataOperation);
+                }
+                if(++pending == batchSize){
+                    session.flush();
+                    session.clear();
+                    pending = 0;
+                }
             }
             transaction.commit();
         }catch(Exception e){
@@ -134,6 +251,17 @@ public class HibernateCRUD implements GeneralCRUD<DataInfo> {
         return this;
     }
 
+    /**
+     * Deletes the row with the ID of the given entity. Only the ID is used, so an entity carrying nothing
+     * but its ID deletes the row without first merging its empty fields onto it.
+     */
+    private static void remove(Session session, Object entity) {
+        Object managed = session.find(entity.getClass(), ((VerifiedEntity) entity).getID());
+        if(managed != null){
+            session.remove(managed);
+        }
+    }
+
     /**
      * Sets the database connection URL in the configuration.
      *
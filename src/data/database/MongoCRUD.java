@@ -1,20 +1,33 @@
 package data.database;
 
+import Interface.EntityCursor;
 import Interface.GeneralCRUD;
 import Interface.ParserCallBack;
+import Interface.VerifiedEntity;
 import com.mongodb.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.DeleteOneModel;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
 import data.DataOperation;
+import data.ParsingCursor;
 import exceptions.DatabaseException;
 import exceptions.OperationException;
 import model.DataInfo;
 import org.bson.Document;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.TreeMap;
 
+import static main.principal.getProperty;
+
 /**
  * @author SIN
  */
@@ -30,15 +43,25 @@ public class MongoCRUD implements GeneralCRUD<DataInfo> {
 
     @Override
     public GeneralCRUD<DataInfo> prepare() {
-        mongoClient = new MongoClient(dataInfo.getUrl(), Integer.parseInt(dataInfo.getPort()));
+        mongoClient = MongoClientRegistry.get(dataInfo.getUrl(), Integer.parseInt(dataInfo.getPort()));
         MongoDatabase database = mongoClient.getDatabase(dataInfo.getDatabase());
         collection = database.getCollection(dataInfo.getTable());
         return this;
     }
 
+    /**
+     * The {@code MongoClient} is shared through the {@code MongoClientRegistry} and keeps its
+     * connection pool alive between operations, so releasing only drops the references.
+     */
     @Override
     public void release() {
-        mongoClient.close();
+        collection = null;
+        mongoClient = null;
+    }
+
+    @Override
+    public boolean isReusable() {
+        return true;
     }
 
     @Override
@@ -56,6 +79,22 @@ public class MongoCRUD implements GeneralCRUD<DataInfo> {
         return this;
     }
 
+    /**
+     * Streams the collection through a {@code MongoCursor} fetching {@code cursorFetchSize} documents per batch.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> EntityCursor<VerifiedEntity> cursor(ParserCallBack<R, TreeMap<Integer, VerifiedEntity>> parser) {
+        try {
+            MongoCursor<Document> cursor = collection.find()
+                    .batchSize(Integer.parseInt(getProperty("cursorFetchSize")))
+                    .iterator();
+            return new ParsingCursor<>((Iterator<R>) cursor, parser, cursor);
+        } catch (Exception e) {
+            throw new DatabaseException("Can not read data or data not found! Cause: " + e.getMessage());
+        }
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <R, U> GeneralCRUD<DataInfo> update(ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
@@ -73,4 +112,38 @@ public class MongoCRUD implements GeneralCRUD<DataInfo> {
         return this;
     }
 
+    /**
+     * Sends the operation for every object through {@code bulkWrite}, one round trip per {@code batchSize} documents.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R, U> GeneralCRUD<DataInfo> updateBatch(ParserCallBack<R, U> parser, DataOperation dataOperation, Collection<U> dataContainers) {
+        int batchSize = Integer.parseInt(getProperty("batchSize"));
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        try {
+            for(U dataContainer : dataContainers){
+                Document document = new Document();
+                parser.parse((R)document, dataOperation, dataContainer);
+                writes.add(switch(dataOperation){
+                    case ADD -> new InsertOneModel<>(document);
+                    case MODIFY -> new UpdateOneModel<>(new Document("id", document.get("id")), new Document("$set", document));
+                    case DELETE -> new DeleteOneModel<>(document);
+                    default -> throw new OperationException("Unexpected DataOperation for updating: " + dataOperation);
+                });
+                if(writes.size() == batchSize){
+                    collection.bulkWrite(writes);
+                    writes.clear();
+                }
+            }
+            if(!writes.isEmpty()){
+                collection.bulkWrite(writes);
+            }
+        } catch (OperationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DatabaseException("Can not update data. Caused: " + e.getMessage());
+        }
+        return this;
+    }
+
 }
@@ -0,0 +1,58 @@
+package data.database;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ServerAddress;
+import exceptions.DatabaseException;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import static main.principal.getProperty;
+
+/**
+ * Process-wide registry of {@code MongoClient} instances, one per {@code host:port}.
+ * <p>
+ * A {@code MongoClient} owns an internal connection pool, so it is meant to be created once and
+ * shared. {@code MongoCRUD} borrows the client from this registry instead of constructing and
+ * closing one per operation; the pool size is configured with {@code mongoMaxPoolSize},
+ * {@code mongoMinPoolSize} and {@code mongoMaxIdleTime}. Clients are closed by {@link #closeAll()} on shutdown.
+ * @author SIN
+ */
+public class MongoClientRegistry {
+    private static final ConcurrentHashMap<String, MongoClient> MONGO_CLIENTS = new ConcurrentHashMap<>();
+
+    private MongoClientRegistry() {
+    }
+
+    /**
+     * Returns the shared {@code MongoClient} for the given host and port, creating it on first use.
+     *
+     * @param host the MongoDB host name
+     * @param port the MongoDB port
+     * @return the shared {@code MongoClient} for {@code host:port}
+     * @throws DatabaseException if the client cannot be created
+     */
+    public static MongoClient get(String host, int port) throws DatabaseException {
+        try {
+            return MONGO_CLIENTS.computeIfAbsent("%s:%d".formatted(host, port), _ -> new MongoClient(new ServerAddress(host, port), buildOptions()));
+        } catch (Exception e) {
+            throw new DatabaseException(e.getMessage());
+        }
+    }
+
+    /**
+     * Closes and unregisters every {@code MongoClient}. Intended to be called once on shutdown.
+     */
+    public static void closeAll() {
+        MONGO_CLIENTS.values().forEach(MongoClient::close);
+        MONGO_CLIENTS.clear();
+    }
+
+    private static MongoClientOptions buildOptions() {
+        return MongoClientOptions.builder()
+                .connectionsPerHost(Integer.parseInt(getProperty("mongoMaxPoolSize")))
+                .minConnectionsPerHost(Integer.parseInt(getProperty("mongoMinPoolSize")))
+                .maxConnectionIdleTime(Integer.parseInt(getProperty("mongoMaxIdleTime")))
+                .build();
+    }
+}
@@ -1,18 +1,25 @@
 package data.database;
 
+import Interface.EntityCursor;
 import Interface.GeneralCRUD;
 import Interface.ParserCallBack;
 import Interface.VerifiedEntity;
 import data.DataOperation;
+import data.ParsingCursor;
 import exceptions.DatabaseException;
 import exceptions.OperationException;
 import model.DataInfo;
 import javax.persistence.EntityManager;
-import javax.persistence.Persistence;
 import javax.persistence.TypedQuery;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.TreeMap;
 
+import static main.principal.getProperty;
+
 /**
  * @author SIN
  */
@@ -28,7 +35,7 @@ public class ObjectDBCRUD implements GeneralCRUD<DataInfo> {
     @Override
     public GeneralCRUD<DataInfo> prepare() throws DatabaseException {
         try{
-            entityManager = Persistence.createEntityManagerFactory(dataInfo.getUrl()).createEntityManager();
+            entityManager = EntityManagerFactoryRegistry.get(dataInfo.getUrl()).createEntityManager();
             if(entityManager != null && entityManager.isOpen()){
                 return this;
             }else {
@@ -41,29 +48,127 @@ public class ObjectDBCRUD implements GeneralCRUD<DataInfo> {
 
     @Override
     public void release() {
-        entityManager.close();
+        if(entityManager != null && entityManager.isOpen()){
+            entityManager.close();
+        }
+        entityManager = null;
     }
 
+    /**
+     * Reads players with a single execution of the query. When {@code objectdbFetchSize} is greater
+     * than zero, a full read is streamed page by page instead: each page is parsed into the container
+     * and then detached from the persistence context, so memory stays bounded on large Player tables.
+     */
     @Override
     @SuppressWarnings("unchecked")
     public <R, U> GeneralCRUD<DataInfo> read(ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
         try{
-            entityManager.getTransaction().begin();
             TypedQuery<VerifiedEntity> query = switch (dataOperation){
-                case READ -> entityManager.createQuery("SELECT s FROM %s s".formatted(dataInfo.getTable()), VerifiedEntity.class);
+                case READ -> entityManager.createQuery("SELECT s FROM %s s ORDER BY s.ID".formatted(dataInfo.getTable()), VerifiedEntity.class);
                 case SEARCH -> entityManager.createQuery("SELECT s FROM %s s WHERE s.ID = %s".formatted(dataInfo.getTable(), ((TreeMap<?, ?>) dataContainer).firstKey()), VerifiedEntity.class);
                 default -> throw new OperationException("Unexpected DataOperation for reading: " + dataOperation);
             };
-            if(!query.getResultList().isEmpty()){
+            int fetchSize = Integer.parseInt(getProperty("objectdbFetchSize"));
+            if(dataOperation == DataOperation.SEARCH || fetchSize <= 0){
                 List<VerifiedEntity> list = query.getResultList();
-                parser.parse((R)list, dataOperation, dataContainer);
+                if(!list.isEmpty()){
+                    parser.parse((R)list, dataOperation, dataContainer);
+                }
+                return this;
             }
+            TypedQuery<VerifiedEntity> pageQuery = pageQuery(fetchSize);
+            List<VerifiedEntity> page;
+            int lastId = Integer.MIN_VALUE;
+            do{
+                page = pageQuery.setParameter("lastId", lastId).getResultList();
+                if(!page.isEmpty()){
+                    lastId = page.getLast().getID();
+                    parser.parse((R)page, dataOperation, dataContainer);
+                }
+                entityManager.clear();
+            }while(page.size() == fetchSize);
+        }catch (Exception e){
+            throw new DatabaseException(e.getMessage());
+        }
+        return this;
+    }
+
+    /**
+     * Reads the fingerprinted fields through the {@code text_query_fingerprint} projection, so the parser
+     * gets {@code Object[]} rows and no entities enter the persistence context. Falls back to a full read
+     * when no projection is configured.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> GeneralCRUD<DataInfo> readFingerprints(ParserCallBack<R, HashMap<Integer, Long>> parser, HashMap<Integer, Long> fingerprints) {
+        if(dataInfo.getQueryFingerprint() == null){
+            return read(parser, DataOperation.READ, fingerprints);
+        }
+        try{
+            List<Object[]> rows = entityManager.createQuery(dataInfo.getQueryFingerprint(), Object[].class).getResultList();
+            parser.parse((R)rows, DataOperation.READ, fingerprints);
         }catch (Exception e){
             throw new DatabaseException(e.getMessage());
         }
         return this;
     }
 
+    /**
+     * Pages through the table by key: every page starts after the last ID of the previous one, so
+     * the database seeks to it through the ID index instead of skipping all earlier rows.
+     */
+    private TypedQuery<VerifiedEntity> pageQuery(int fetchSize) {
+        return entityManager
+                .createQuery("SELECT s FROM %s s WHERE s.ID > :lastId ORDER BY s.ID".formatted(dataInfo.getTable()), VerifiedEntity.class)
+                .setMaxResults(fetchSize);
+    }
+
+    /**
+     * Streams the players page by page, {@code cursorFetchSize} entities per query, clearing the
+     * persistence context between pages.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> EntityCursor<VerifiedEntity> cursor(ParserCallBack<R, TreeMap<Integer, VerifiedEntity>> parser) {
+        int fetchSize = Integer.parseInt(getProperty("cursorFetchSize"));
+        TypedQuery<VerifiedEntity> query = pageQuery(fetchSize);
+        Iterator<R> pages = new Iterator<>() {
+            private List<VerifiedEntity> page = null;
+            private int lastId = Integer.MIN_VALUE;
+            private boolean lastPage = false;
+
+            @Override
+            public boolean hasNext() {
+                if(page == null && !lastPage){
+                    try {
+                        entityManager.clear();
+                        page = query.setParameter("lastId", lastId).getResultList();
+                    } catch (Exception e) {
+                        throw new DatabaseException(e.getMessage());
+                    }
+                    lastPage = page.size() < fetchSize;
+                    if(page.isEmpty()){
+                        page = null;
+                    }else{
+                        lastId = page.getLast().getID();
+                    }
+                }
+                return page != null;
+            }
+
+            @Override
+            public R next() {
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                List<VerifiedEntity> current = page;
+                page = null;
+                return (R) current;
+            }
+        };
+        return new ParsingCursor<>(pages, parser, null);
+    }
+
     @Override
     public <R, U> GeneralCRUD<DataInfo> update(ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
         try {
@@ -71,7 +176,7 @@ public class ObjectDBCRUD implements GeneralCRUD<DataInfo> {
             switch(dataOperation){
                 case ADD -> entityManager.persist(dataContainer);
                 case MODIFY -> entityManager.merge(dataContainer);
-                case DELETE -> entityManager.remove(entityManager.merge(dataContainer));
+                case DELETE -> remove(dataContainer);
             }
             entityManager.getTransaction().commit();
         }catch(Exception e){
@@ -83,4 +188,48 @@ public class ObjectDBCRUD implements GeneralCRUD<DataInfo> {
         return this;
     }
 
+    /**
+     * Applies the operation to every object inside a single transaction, flushing and clearing
+     * the persistence context every {@code batchSize} objects.
+     */
+    @Override
+    public <R, U> GeneralCRUD<DataInfo> updateBatch(ParserCallBack<R, U> parser, DataOperation dataOperation, Collection<U> dataContainers) {
+        int batchSize = Integer.parseInt(getProperty("batchSize"));
+        try {
+            entityManager.getTransaction().begin();
+            int pending = 0;
+            for(U dataContainer : dataContainers){
+                switch(dataOperation){
+                    case ADD -> entityManager.persist(dataContainer);
+                    case MODIFY -> entityManager.merge(dataContainer);
+                    case DELETE -> remove(dataContainer);
+                    default -> throw new OperationException("Unexpected DataOperation for updating: " + dataOperation);
+                }
+                if(++pending == batchSize){
+                    entityManager.flush();
+                    entityManager.clear();
+                    pending = 0;
+                }
+            }
+            entityManager.getTransaction().commit();
+        }catch(Exception e){
+            if(entityManager.getTransaction().isActive()){
+                entityManager.getTransaction().rollback();
+            }
+            throw new DatabaseException(e.getMessage());
+        }
+        return this;
+    }
+
+    /**
+     * Looks the entity up by ID and removes the stored object, so deleting never writes the fields of the
+     * given object, which may be an ID-only reference, onto the database.
+     */
+    private void remove(Object entity) {
+        Object managed = entityManager.find(entity.getClass(), ((VerifiedEntity) entity).getID());
+        if(managed != null){
+            entityManager.remove(managed);
+        }
+    }
+
 }
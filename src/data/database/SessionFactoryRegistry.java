@@ -0,0 +1,59 @@
+package data.database;
+
+import exceptions.DatabaseException;
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of Hibernate {@code SessionFactory} instances.
+ * <p>
+ * Building a {@code SessionFactory} runs the full Hibernate bootstrap and, with
+ * {@code hibernate.hbm2ddl.auto=update}, a schema diff against the database. The registry
+ * builds one factory per connection identity the first time it is requested and shares it
+ * with every later {@code HibernateCRUD} operation until {@link #closeAll()} is called.
+ * @author SIN
+ */
+public class SessionFactoryRegistry {
+    private static final ConcurrentHashMap<String, SessionFactory> SESSION_FACTORIES = new ConcurrentHashMap<>();
+
+    private SessionFactoryRegistry() {
+    }
+
+    /**
+     * Returns the {@code SessionFactory} registered for the given connection identity,
+     * building it with the supplied builder if none is registered or the previous one was closed.
+     *
+     * @param key the connection identity, typically dialect, URL and user
+     * @param builder builds a new {@code SessionFactory} when needed
+     * @return the shared {@code SessionFactory} for this connection identity
+     * @throws DatabaseException if the {@code SessionFactory} cannot be built
+     */
+    public static SessionFactory get(String key, Supplier<SessionFactory> builder) throws DatabaseException {
+        try {
+            SessionFactory sessionFactory = SESSION_FACTORIES.compute(key, (_, current) ->
+                    current == null || current.isClosed() ? builder.get() : current);
+            if (sessionFactory == null) {
+                SESSION_FACTORIES.remove(key);
+                throw new DatabaseException("SessionFactory is null");
+            }
+            return sessionFactory;
+        } catch (HibernateException e) {
+            throw new DatabaseException(e.getMessage());
+        }
+    }
+
+    /**
+     * Closes and unregisters every {@code SessionFactory}. Intended to be called once on shutdown.
+     */
+    public static void closeAll() {
+        SESSION_FACTORIES.values().forEach(sessionFactory -> {
+            if (!sessionFactory.isClosed()) {
+                sessionFactory.close();
+            }
+        });
+        SESSION_FACTORIES.clear();
+    }
+}
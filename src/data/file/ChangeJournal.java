@@ -0,0 +1,475 @@
+package data.file;
+
+import Interface.EntityParser;
+import Interface.ParserCallBack;
+import Interface.VerifiedEntity;
+import data.CRUDFactory;
+import data.DataOperation;
+import exceptions.FileManageException;
+import model.DataInfo;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import static main.principal.getProperty;
+
+/**
+ * Append-only journal of the changes made to a file data source, stored next to it with the
+ * {@code .journal} suffix.
+ * <p>
+ * Every ADD, MODIFY and DELETE is appended and forced to disk as it happens, so saving costs only the
+ * changes made since the last save and a crash loses none of them. Reads replay the journal on top of
+ * the base file. Compaction rewrites the base file with the journal applied, on a background thread,
+ * and then drops the entries it has absorbed; it runs on every save and whenever the journal reaches
+ * {@code journalCompactThreshold} entries.
+ * <p>
+ * The journal starts with a header holding the size and modification time of the base file it applies
+ * to, stamped when the journal is created and after every compaction. A journal whose header no longer
+ * matches the base file, because the file was replaced or edited elsewhere, is moved aside with the
+ * {@code .stale} suffix instead of being replayed on top of content it was not written against.
+ * <p>
+ * Each entry is framed by its length and a CRC32, so a torn entry at the end of the journal left by a
+ * crash is detected and ignored. Entities are encoded as {@code DatRecord}s through the DAT serializer
+ * of the entity parser. Replaying an entry twice has no further effect, so a crash between rewriting the
+ * base file and trimming the journal is harmless.
+ * @author SIN
+ */
+public class ChangeJournal {
+    private static final ConcurrentHashMap<Path, ChangeJournal> JOURNALS = new ConcurrentHashMap<>();
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final int MAGIC = 0x504A524E;
+    private static final int HEADER_SIZE = 4 + 8 + 8;
+    private final Path basePath;
+    private final Path journalPath;
+    private final DataInfo dataInfo;
+    private final EntityParser entityParser;
+    private int pendingEntries = -1;
+    private Future<?> compaction;
+    private boolean compacting = false;
+
+    private ChangeJournal(Path basePath, DataInfo dataInfo, EntityParser entityParser) {
+        this.basePath = basePath;
+        this.journalPath = basePath.resolveSibling(basePath.getFileName() + ".journal");
+        this.dataInfo = dataInfo;
+        this.entityParser = entityParser;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(getProperty("fileJournal"));
+    }
+
+    /**
+     * Returns the journal of the file described by the {@code DataInfo}, shared by every caller using the same file.
+     */
+    public static ChangeJournal of(DataInfo dataInfo, EntityParser entityParser) {
+        Path basePath = Paths.get(dataInfo.getUrl()).toAbsolutePath().normalize();
+        return JOURNALS.computeIfAbsent(basePath, _ -> {
+            DataInfo baseInfo = new DataInfo(dataInfo.getDataType());
+            baseInfo.setUrl(basePath.toString());
+            baseInfo.setXmlReadMode(dataInfo.getXmlReadMode());
+            baseInfo.setFileCompression(dataInfo.getFileCompression());
+            return new ChangeJournal(basePath, baseInfo, entityParser);
+        });
+    }
+
+    /**
+     * Appends one change to the journal and forces it to disk. Schedules a compaction once the journal
+     * holds {@code journalCompactThreshold} entries.
+     */
+    public synchronized void append(DataOperation operation, VerifiedEntity entity) {
+        byte[] payload = encode(operation, entity);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer entry = ByteBuffer.allocate(8 + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+        verifyHeader();
+        if (journalLength() == 0) {
+            FileWriteBehind.flush(basePath);
+        }
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            if (channel.size() == 0) {
+                ByteBuffer header = header();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+            }
+            while (entry.hasRemaining()) {
+                channel.write(entry);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new FileManageException("Error writing the journal.>>>" + e.getMessage());
+        }
+        if (pendingEntries >= 0) {
+            pendingEntries++;
+        }
+        if (pendingEntries() >= Integer.parseInt(getProperty("journalCompactThreshold"))) {
+            compactInBackground();
+        }
+    }
+
+    /**
+     * Applies the journaled changes to a container read from the base file.
+     *
+     * @param ids the only IDs to replay, or {@code null} to replay every entry
+     */
+    public synchronized void replay(Map<Integer, VerifiedEntity> dataContainer, Set<Integer> ids) {
+        verifyHeader();
+        readEntries(journalLength(), (operation, id, record) -> {
+            if (ids != null && !ids.contains(id)) {
+                return;
+            }
+            switch (operation) {
+                case ADD, MODIFY -> dataContainer.put(id, decode(record));
+                case DELETE -> dataContainer.remove(id);
+                default -> throw new FileManageException("Invalid journal operation: " + operation);
+            }
+        });
+    }
+
+    /**
+     * Schedules a rewrite of the base file with the journal applied. A compaction already scheduled
+     * but not started yet absorbs this request.
+     */
+    public synchronized void compactInBackground() {
+        if (compaction != null && !compaction.isDone()) {
+            return;
+        }
+        if (journalLength() <= HEADER_SIZE) {
+            return;
+        }
+        compaction = COMPACTOR.submit(this::compact);
+    }
+
+    /**
+     * Waits until the scheduled compaction, if any, has finished, so the base file can be read safely.
+     */
+    public void awaitCompaction() {
+        Future<?> pending;
+        synchronized (this) {
+            pending = compaction;
+        }
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            synchronized (this) {
+                if (compaction == pending) {
+                    compaction = null;
+                }
+            }
+            throw new FileManageException("Error compacting the journal.>>>" + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Waits for the compactions of every journal, used before the application exits. A failed compaction
+     * does not stop the wait for the others; the failures are reported together once all have finished.
+     */
+    public static void awaitAll() {
+        List<String> failures = new ArrayList<>();
+        JOURNALS.forEach((basePath, journal) -> {
+            try {
+                journal.awaitCompaction();
+            } catch (FileManageException e) {
+                failures.add(basePath + ": " + e.getMessage());
+            }
+        });
+        if (!failures.isEmpty()) {
+            throw new FileManageException(String.join("\n", failures));
+        }
+    }
+
+    /**
+     * Rewrites the base file with the entries up to the current end of the journal applied. While the base
+     * file is being replaced, its stamp is not checked against the header; once done, the header is
+     * stamped with the new base file, also when the rewrite failed, as replaying absorbed entries again
+     * has no further effect.
+     */
+    private void compact() {
+        FileWriteBehind.flush(basePath);
+        long mark;
+        synchronized (this) {
+            verifyHeader();
+            mark = journalLength();
+            compacting = true;
+        }
+        try {
+            TreeMap<Integer, VerifiedEntity> dataContainer = new TreeMap<>();
+            if (Files.size(basePath) > 0) {
+                CRUDFactory.getCRUD(dataInfo)
+                        .prepare()
+                        .read(entityParser.parseAll(dataInfo.getDataType()), DataOperation.READ, dataContainer)
+                        .release();
+            }
+            readEntries(mark, (operation, id, record) -> {
+                switch (operation) {
+                    case ADD, MODIFY -> dataContainer.put(id, decode(record));
+                    case DELETE -> dataContainer.remove(id);
+                    default -> throw new FileManageException("Invalid journal operation: " + operation);
+                }
+            });
+            CRUDFactory.getCRUD(dataInfo)
+                    .prepare()
+                    .update(entityParser.serializeAll(dataInfo.getDataType()), null, dataContainer)
+                    .release();
+            FileWriteBehind.flush(basePath);
+            synchronized (this) {
+                dropEntriesBefore(mark);
+            }
+        } catch (IOException e) {
+            throw new FileManageException(e.getMessage());
+        } finally {
+            synchronized (this) {
+                compacting = false;
+                stampHeader();
+            }
+        }
+    }
+
+    /**
+     * Moves the journal aside when its header does not identify the current base file, so its entries are
+     * not replayed on top of content they were not written against.
+     *
+     * @throws FileManageException once, after moving a mismatched journal aside
+     */
+    private void verifyHeader() {
+        if (compacting || journalLength() == 0) {
+            return;
+        }
+        ByteBuffer expected = header();
+        ByteBuffer actual = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+            while (actual.hasRemaining() && channel.read(actual) >= 0) {
+                // fill the header
+            }
+        } catch (IOException e) {
+            throw new FileManageException("Error reading the journal.>>>" + e.getMessage());
+        }
+        if (actual.flip().equals(expected)) {
+            return;
+        }
+        Path stale = journalPath.resolveSibling(journalPath.getFileName() + ".stale");
+        try {
+            Files.move(journalPath, stale, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new FileManageException("Error moving the journal aside.>>>" + e.getMessage());
+        }
+        pendingEntries = 0;
+        throw new FileManageException("The journal does not match " + basePath.getFileName()
+                + ", which was changed outside the application. Its entries were moved to " + stale);
+    }
+
+    /**
+     * Rewrites the header of an existing journal with the current size and modification time of the base file.
+     */
+    private void stampHeader() {
+        if (journalLength() == 0) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.WRITE)) {
+            ByteBuffer header = header();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new FileManageException("Error writing the journal.>>>" + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the journal header identifying the base file by its current size and modification time
+     */
+    private ByteBuffer header() {
+        try {
+            boolean exists = Files.exists(basePath);
+            return ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putLong(exists ? Files.size(basePath) : -1)
+                    .putLong(exists ? Files.getLastModifiedTime(basePath).toMillis() : -1)
+                    .flip();
+        } catch (IOException e) {
+            throw new FileManageException(e.getMessage());
+        }
+    }
+
+    /**
+     * Keeps only the entries appended after {@code mark}, under a header stamped with the rewritten base
+     * file, replacing the journal atomically.
+     */
+    private void dropEntriesBefore(long mark) {
+        try {
+            long length = journalLength();
+            if (length <= mark) {
+                Files.deleteIfExists(journalPath);
+                pendingEntries = 0;
+                return;
+            }
+            Path tail = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+            try (FileChannel source = FileChannel.open(journalPath, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(tail, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = header();
+                while (header.hasRemaining()) {
+                    target.write(header);
+                }
+                long position = mark;
+                while (position < length) {
+                    position += source.transferTo(position, length - position, target);
+                }
+                target.force(true);
+            }
+            Files.move(tail, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            pendingEntries = -1;
+        } catch (IOException e) {
+            throw new FileManageException("Error trimming the journal.>>>" + e.getMessage());
+        }
+    }
+
+    private int pendingEntries() {
+        if (pendingEntries < 0) {
+            int[] count = {0};
+            readEntries(journalLength(), (_, _, _) -> count[0]++);
+            pendingEntries = count[0];
+        }
+        return pendingEntries;
+    }
+
+    private long journalLength() {
+        try {
+            return Files.exists(journalPath) ? Files.size(journalPath) : 0;
+        } catch (IOException e) {
+            throw new FileManageException(e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntryConsumer {
+        void accept(DataOperation operation, int id, DatRecord record);
+    }
+
+    /**
+     * Reads the entries stored in the first {@code length} bytes of the journal, after its header, stopping
+     * at the first incomplete or corrupted entry.
+     */
+    private void readEntries(long length, EntryConsumer consumer) {
+        if (length <= HEADER_SIZE) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalPath)))) {
+            in.skipNBytes(HEADER_SIZE);
+            long position = HEADER_SIZE;
+            CRC32 crc = new CRC32();
+            while (position + 8 <= length) {
+                int size = in.readInt();
+                int checksum = in.readInt();
+                if (size < 0 || position + 8 + size > length) {
+                    return;
+                }
+                byte[] payload = in.readNBytes(size);
+                crc.reset();
+                crc.update(payload);
+                if (payload.length != size || (int) crc.getValue() != checksum) {
+                    return;
+                }
+                position += 8 + size;
+                decodeEntry(payload, consumer);
+            }
+        } catch (EOFException e) {
+            // torn entry at the end of the journal
+        } catch (IOException e) {
+            throw new FileManageException("Error reading the journal.>>>" + e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] encode(DataOperation operation, VerifiedEntity entity) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(operation.name());
+            out.writeInt(entity.getID());
+            if (operation != DataOperation.DELETE) {
+                TreeMap<Integer, VerifiedEntity> single = new TreeMap<>();
+                single.put(entity.getID(), entity);
+                List<DatRecord> records = new ArrayList<>(1);
+                ((ParserCallBack<Consumer<DatRecord>, Map<Integer, VerifiedEntity>>) entityParser.serializeAll(FileType.DAT))
+                        .parse(records::add, operation, single);
+                DatRecord record = records.getFirst();
+                writeFields(out, record.dictionaryFields());
+                writeFields(out, record.plainFields());
+            }
+        } catch (IOException e) {
+            throw new FileManageException(e.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void decodeEntry(byte[] payload, EntryConsumer consumer) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        DataOperation operation = DataOperation.valueOf(in.readUTF());
+        int id = in.readInt();
+        DatRecord record = operation == DataOperation.DELETE ? null : new DatRecord(id, readFields(in), readFields(in));
+        consumer.accept(operation, id, record);
+    }
+
+    @SuppressWarnings("unchecked")
+    private VerifiedEntity decode(DatRecord record) {
+        TreeMap<Integer, VerifiedEntity> single = new TreeMap<>();
+        ((ParserCallBack<Object, TreeMap<Integer, VerifiedEntity>>) entityParser.parseAll(FileType.DAT))
+                .parse(record, DataOperation.READ, single);
+        return single.get(record.id());
+    }
+
+    private static void writeFields(DataOutputStream out, String[] fields) throws IOException {
+        out.writeByte(fields.length);
+        for (String field : fields) {
+            out.writeBoolean(field != null);
+            if (field != null) {
+                out.writeUTF(field);
+            }
+        }
+    }
+
+    private static String[] readFields(DataInputStream in) throws IOException {
+        String[] fields = new String[in.readUnsignedByte()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = in.readBoolean() ? in.readUTF() : null;
+        }
+        return fields;
+    }
+}
@@ -1,9 +1,11 @@
 package data.file;
 
+import Interface.EntityCursor;
 import Interface.GeneralCRUD;
 import Interface.ParserCallBack;
 import Interface.VerifiedEntity;
 import data.DataOperation;
+import data.ParsingCursor;
 import exceptions.FileManageException;
 import model.DataInfo;
 
@@ -11,7 +13,13 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import static main.principal.getProperty;
 
 /**
  * @author SIN
@@ -40,48 +48,149 @@ public class DatCRUD implements GeneralCRUD<DataInfo> {
         path = null;
     }
 
+    @Override
+    public boolean isReusable() {
+        return true;
+    }
+
+    /**
+     * Reads a binary DAT file record by record. Files written by earlier versions with Java object
+     * serialization are still read through the legacy path; they are rewritten in the binary format
+     * on the next save. Compressed files are decompressed while they are read. A SEARCH only decodes
+     * the blocks holding the requested IDs when the file has an up-to-date {@code FileIndex}.
+     */
     @Override
     @SuppressWarnings("unchecked")
     public <R, U> GeneralCRUD<DataInfo> read(ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
-        try (ObjectInputStream ois = new ObjectInputStream(Files.newInputStream(path))) {
-            if (Files.size(path) == 0) {
-                return this;
-            }
-            while (true) {
-                Object tempObject = ois.readObject();
-                if("EOF".equals(tempObject)){
-                    break;
-                }
-                if(!(tempObject instanceof VerifiedEntity)){
-                    throw new FileManageException("Object is not VerifiedEntity");
-                }else{
-                    parser.parse((R) tempObject, dataOperation, dataContainer);
-                }
-            }
-        }catch (Exception e){
-            throw new FileManageException(e.getMessage());
+        FileWriteBehind.flush(path);
+        if(dataOperation == DataOperation.SEARCH && dataContainer instanceof Map<?, ?> ids
+                && FileIndex.forEachRegion(path, ids, (block, id) -> readBlock(block, id, parser, dataOperation, dataContainer))){
+            return this;
+        }
+        try (EntityCursor<R> records = openRecords()) {
+            records.forEachRemaining(record -> parser.parse(record, dataOperation, dataContainer));
         }
         return this;
     }
 
+    /**
+     * Streams the file one record (or, for legacy files, one serialized object) at a time.
+     */
+    @Override
+    public <R> EntityCursor<VerifiedEntity> cursor(ParserCallBack<R, TreeMap<Integer, VerifiedEntity>> parser) {
+        FileWriteBehind.flush(path);
+        EntityCursor<R> records = openRecords();
+        return new ParsingCursor<>(records, parser, records);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <R, U> GeneralCRUD<DataInfo> update(ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
-        try(ObjectOutputStream oos = new ObjectOutputStream(Files.newOutputStream(path))) {
-            ArrayList<VerifiedEntity> verifiedEntities = new ArrayList<>();
-            parser.parse((R)verifiedEntities, null, dataContainer);
-            verifiedEntities.forEach(verifiedEntity -> {
-                try {
-                    oos.writeObject(verifiedEntity);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
+        int blockSize = Integer.parseInt(getProperty("datBlockSize"));
+        FileCompression compression = FileCompression.of(dataInfo, path);
+        Path target = path;
+        U snapshot = FileWriteBehind.snapshot(dataContainer);
+        FileIndex.Builder[] index = new FileIndex.Builder[1];
+        FileWriteBehind.write(target, file -> {
+            try(DatRecordWriter writer = new DatRecordWriter(compression.compress(new BufferedOutputStream(Files.newOutputStream(file))), blockSize)) {
+                parser.parse((R) writer, null, snapshot);
+                index[0] = writer.getIndex();
+            }catch (UncheckedIOException e){
+                throw e.getCause();
+            }
+        }, () -> {
+            if(FileIndex.isEnabled() && compression == FileCompression.NONE){
+                index[0].write(target);
+            }else{
+                FileIndex.remove(target);
+            }
+        });
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R, U> void readBlock(byte[] block, int id, ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
+        try(DatRecordReader reader = DatRecordReader.ofBlock(path, block)) {
+            reader.forEachRemaining(record -> {
+                if(record.id() == id){
+                    parser.parse((R) record, dataOperation, dataContainer);
                 }
             });
-            oos.writeObject("EOF");
         }catch (IOException e){
             throw new FileManageException(e.getMessage());
         }
-        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> EntityCursor<R> openRecords() {
+        try {
+            if (Files.size(path) == 0) {
+                return EntityCursor.of(Collections.emptyIterator());
+            }
+            InputStream in = FileCompression.open(path);
+            Iterator<?> records = DatRecordReader.isDatFormat(in) ? new DatRecordReader(in) : legacyObjects(new ObjectInputStream(in));
+            return new EntityCursor<>() {
+                @Override
+                public boolean hasNext() {
+                    return records.hasNext();
+                }
+
+                @Override
+                public R next() {
+                    return (R) records.next();
+                }
+
+                @Override
+                public void close() {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                        throw new FileManageException(e.getMessage());
+                    }
+                }
+            };
+        } catch (IOException e) {
+            throw new FileManageException(e.getMessage());
+        }
+    }
+
+    /**
+     * Iterates the entities of a file written with Java object serialization until the {@code "EOF"} marker.
+     */
+    private static Iterator<Object> legacyObjects(ObjectInputStream ois) {
+        return new Iterator<>() {
+            private Object nextObject = null;
+            private boolean finished = false;
+
+            @Override
+            public boolean hasNext() {
+                if (nextObject == null && !finished) {
+                    try {
+                        Object tempObject = ois.readObject();
+                        if ("EOF".equals(tempObject)) {
+                            finished = true;
+                        } else if (!(tempObject instanceof VerifiedEntity)) {
+                            throw new FileManageException("Object is not VerifiedEntity");
+                        } else {
+                            nextObject = tempObject;
+                        }
+                    } catch (IOException | ClassNotFoundException e) {
+                        throw new FileManageException(e.getMessage());
+                    }
+                }
+                return nextObject != null;
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Object current = nextObject;
+                nextObject = null;
+                return current;
+            }
+        };
     }
 
 }
@@ -0,0 +1,9 @@
+package data.file;
+
+/**
+ * One row of the binary DAT format: the entity ID, the low-cardinality fields stored through the
+ * file dictionary (e.g. region and server) and the free-text fields stored inline (e.g. name).
+ * @author SIN
+ */
+public record DatRecord(int id, String[] dictionaryFields, String[] plainFields) {
+}
@@ -0,0 +1,154 @@
+package data.file;
+
+import exceptions.FileManageException;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the {@code DatRecord}s of a binary DAT file block by block, in the layout described by
+ * {@link DatRecordWriter}. Dictionary values are decoded once per block and shared by every record
+ * using them.
+ * @author SIN
+ */
+class DatRecordReader implements Iterator<DatRecord>, Closeable {
+    private final DataInputStream in;
+    private final ArrayList<String> dictionary = new ArrayList<>();
+    private final int dictionaryColumns;
+    private final int plainColumns;
+    private byte[] stringBuffer = new byte[64];
+    private int remainingInBlock = 0;
+    private boolean finished = false;
+
+    /**
+     * @param in a stream positioned at the start of the file, whose header has not been read yet
+     */
+    DatRecordReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        if (this.in.readInt() != DatRecordWriter.MAGIC) {
+            throw new FileManageException("Not a binary dat file");
+        }
+        short version = this.in.readShort();
+        if (version != DatRecordWriter.VERSION) {
+            throw new FileManageException("Unsupported dat file version: " + version);
+        }
+        dictionaryColumns = this.in.readUnsignedByte();
+        plainColumns = this.in.readUnsignedByte();
+    }
+
+    /**
+     * Opens a reader over a single block of the file, located through its {@code FileIndex}.
+     */
+    static DatRecordReader ofBlock(Path path, byte[] block) throws IOException {
+        byte[] header;
+        try (InputStream in = Files.newInputStream(path)) {
+            header = in.readNBytes(DatRecordWriter.HEADER_SIZE);
+        }
+        return new DatRecordReader(new SequenceInputStream(new ByteArrayInputStream(header),
+                new SequenceInputStream(new ByteArrayInputStream(block), new ByteArrayInputStream(new byte[8]))));
+    }
+
+    /**
+     * Checks whether the stream starts with the binary DAT header, without consuming it.
+     * The stream must support {@code mark}.
+     */
+    static boolean isDatFormat(InputStream in) throws IOException {
+        in.mark(4);
+        try {
+            byte[] magic = in.readNBytes(4);
+            return magic.length == 4 && ((magic[0] & 0xFF) << 24 | (magic[1] & 0xFF) << 16 | (magic[2] & 0xFF) << 8 | magic[3] & 0xFF) == DatRecordWriter.MAGIC;
+        } finally {
+            in.reset();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (remainingInBlock == 0 && !finished) {
+            try {
+                nextBlock();
+            } catch (IOException e) {
+                throw new FileManageException(e.getMessage());
+            }
+        }
+        return remainingInBlock > 0;
+    }
+
+    @Override
+    public DatRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            int id = readVarInt();
+            String[] dictionaryFields = new String[dictionaryColumns];
+            for (int i = 0; i < dictionaryColumns; i++) {
+                int index = readVarInt();
+                dictionaryFields[i] = index == 0 ? null : dictionary.get(index - 1);
+            }
+            String[] plainFields = new String[plainColumns];
+            for (int i = 0; i < plainColumns; i++) {
+                plainFields[i] = readString();
+            }
+            remainingInBlock--;
+            return new DatRecord(id, dictionaryFields, plainFields);
+        } catch (IOException | IndexOutOfBoundsException e) {
+            throw new FileManageException("Corrupted dat file.>>>" + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void nextBlock() throws IOException {
+        in.readInt();
+        int recordCount = in.readInt();
+        if (recordCount <= 0) {
+            finished = true;
+            return;
+        }
+        dictionary.clear();
+        int newEntries = readVarInt();
+        for (int i = 0; i < newEntries; i++) {
+            dictionary.add(readString());
+        }
+        remainingInBlock = recordCount;
+    }
+
+    private String readString() throws IOException {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        length--;
+        if (stringBuffer.length < length) {
+            stringBuffer = new byte[Math.max(length, stringBuffer.length * 2)];
+        }
+        in.readFully(stringBuffer, 0, length);
+        return new String(stringBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,149 @@
+package data.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.function.Consumer;
+
+/**
+ * Writes {@code DatRecord}s in the binary DAT format.
+ * <p>
+ * Layout: a header ({@code MAGIC}, {@code VERSION}, dictionary column count, plain column count)
+ * followed by blocks of up to {@code blockSize} records. Every block is framed by its payload length
+ * and record count, and its payload starts with its own dictionary, holding the values used by the
+ * records of that block, followed by the records. Blocks are therefore self-contained and can be
+ * decoded on their own through the {@code FileIndex} written alongside the file.
+ * <p>
+ * A record is a varint ID, one varint dictionary index per dictionary column and one length-prefixed
+ * UTF-8 string per plain column; index and length {@code 0} mean {@code null}. A block with zero
+ * records marks the end of the file.
+ * @author SIN
+ */
+class DatRecordWriter implements Consumer<DatRecord>, Closeable {
+    static final int MAGIC = 0x50444154;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 4 + 2 + 1 + 1;
+    private final DataOutputStream out;
+    private final int blockSize;
+    private final HashMap<String, Integer> dictionary = new HashMap<>();
+    private final FileIndex.Builder index = new FileIndex.Builder();
+    private int[] blockIds;
+    private long written = 0;
+    private final ByteArrayOutputStream newEntries = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+    private int newEntryCount = 0;
+    private int recordCount = 0;
+    private boolean headerWritten = false;
+
+    DatRecordWriter(OutputStream out, int blockSize) {
+        this.out = new DataOutputStream(out);
+        this.blockSize = blockSize;
+        blockIds = new int[blockSize];
+    }
+
+    FileIndex.Builder getIndex() {
+        return index;
+    }
+
+    @Override
+    public void accept(DatRecord record) {
+        try {
+            if (!headerWritten) {
+                writeHeader(record.dictionaryFields().length, record.plainFields().length);
+            }
+            blockIds[recordCount] = record.id();
+            writeVarInt(records, record.id());
+            for (String field : record.dictionaryFields()) {
+                writeVarInt(records, field == null ? 0 : dictionaryIndex(field) + 1);
+            }
+            for (String field : record.plainFields()) {
+                writeString(records, field);
+            }
+            if (++recordCount == blockSize) {
+                flushBlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the pending block and the end marker, then closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try (out) {
+            if (!headerWritten) {
+                writeHeader(0, 0);
+            }
+            if (recordCount > 0) {
+                flushBlock();
+            }
+            out.writeInt(0);
+            out.writeInt(0);
+        }
+    }
+
+    private void writeHeader(int dictionaryColumns, int plainColumns) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeByte(dictionaryColumns);
+        out.writeByte(plainColumns);
+        headerWritten = true;
+        written += HEADER_SIZE;
+    }
+
+    private int dictionaryIndex(String value) throws IOException {
+        Integer index = dictionary.get(value);
+        if (index == null) {
+            index = dictionary.size();
+            dictionary.put(value, index);
+            writeString(newEntries, value);
+            newEntryCount++;
+        }
+        return index;
+    }
+
+    private void flushBlock() throws IOException {
+        ByteArrayOutputStream entryCount = new ByteArrayOutputStream(5);
+        writeVarInt(entryCount, newEntryCount);
+        int payloadSize = entryCount.size() + newEntries.size() + records.size();
+        out.writeInt(payloadSize);
+        out.writeInt(recordCount);
+        entryCount.writeTo(out);
+        newEntries.writeTo(out);
+        records.writeTo(out);
+        for (int i = 0; i < recordCount; i++) {
+            index.add(blockIds[i], written, 8 + payloadSize);
+        }
+        written += 8 + payloadSize;
+        dictionary.clear();
+        newEntries.reset();
+        records.reset();
+        newEntryCount = 0;
+        recordCount = 0;
+    }
+
+    private static void writeString(ByteArrayOutputStream buffer, String value) {
+        if (value == null) {
+            writeVarInt(buffer, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(buffer, bytes.length + 1);
+        buffer.writeBytes(bytes);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer.write(value);
+    }
+}
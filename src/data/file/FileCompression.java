@@ -0,0 +1,107 @@
+package data.file;
+
+import exceptions.FileManageException;
+import model.DataInfo;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static main.principal.getProperty;
+
+/**
+ * Compression applied by the file CRUDs when writing a data file. Reading does not depend on the
+ * setting: a file is recognised as gzip or zlib-wrapped deflate by its first bytes and decompressed
+ * on the fly, so files written with any setting stay readable.
+ * <p>
+ * Byte offsets of a compressed file do not match the offsets of its content, so compressed files have
+ * no {@code FileIndex} and are always read sequentially.
+ * @author SIN
+ */
+public enum FileCompression {
+    NONE, GZIP, DEFLATE;
+
+    private static final int STREAM_BUFFER_SIZE = 65536;
+
+    /**
+     * Chooses the compression to write the target with: the one set on the {@code DataInfo}; otherwise the
+     * one the existing target was written with, so saving a file does not change its format; otherwise,
+     * for a new or empty file, the {@code fileCompression} default.
+     */
+    static FileCompression of(DataInfo dataInfo, Path target) {
+        if (dataInfo.getFileCompression() != null) {
+            return dataInfo.getFileCompression();
+        }
+        try {
+            if (Files.exists(target) && Files.size(target) > 0) {
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(target), 2)) {
+                    return detect(in);
+                }
+            }
+        } catch (IOException e) {
+            throw new FileManageException("Error reading %s.>>>%s".formatted(target.getFileName(), e.getMessage()));
+        }
+        return FileCompression.valueOf(getProperty("fileCompression"));
+    }
+
+    /**
+     * Wraps the buffered output stream of a data file so that everything written to it is compressed.
+     */
+    OutputStream compress(OutputStream out) throws IOException {
+        return switch (this) {
+            case NONE -> out;
+            case GZIP -> new GZIPOutputStream(out, STREAM_BUFFER_SIZE);
+            case DEFLATE -> new DeflaterOutputStream(out);
+        };
+    }
+
+    /**
+     * Opens a data file for reading, decompressing it when it starts with a gzip or zlib header.
+     */
+    static InputStream open(Path path) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(Files.newInputStream(path), STREAM_BUFFER_SIZE);
+        try {
+            return switch (detect(in)) {
+                case NONE -> in;
+                case GZIP -> new BufferedInputStream(new GZIPInputStream(in, STREAM_BUFFER_SIZE), STREAM_BUFFER_SIZE);
+                case DEFLATE -> new BufferedInputStream(new InflaterInputStream(in), STREAM_BUFFER_SIZE);
+            };
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return whether the file on disk is compressed
+     */
+    static boolean isCompressed(Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 2)) {
+            return detect(in) != NONE;
+        }
+    }
+
+    /**
+     * Peeks at the first two bytes of the stream, which must support mark and reset.
+     */
+    private static FileCompression detect(InputStream in) throws IOException {
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        if (first == 0x1f && second == 0x8b) {
+            return GZIP;
+        }
+        if (first == 0x78 && second >= 0 && ((first << 8) | second) % 31 == 0) {
+            return DEFLATE;
+        }
+        return NONE;
+    }
+}
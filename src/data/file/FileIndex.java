@@ -0,0 +1,223 @@
+package data.file;
+
+import exceptions.FileManageException;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+import static main.principal.getProperty;
+
+/**
+ * Sidecar index of a data file, stored next to it with the {@code .idx} suffix, mapping every entity ID
+ * to the byte offset and length of the region of the data file that holds it.
+ * <p>
+ * The header records the size and modification time of the data file at the time the index was
+ * written; an index whose data file has changed since is ignored. Entries are fixed-width and sorted
+ * by ID, so a lookup is a binary search over the index file without loading it.
+ * @author SIN
+ */
+class FileIndex implements Closeable {
+    private static final int MAGIC = 0x50494458;
+    private static final int HEADER_SIZE = 4 + 8 + 8 + 4;
+    private static final int ENTRY_SIZE = 4 + 8 + 4;
+    private final FileChannel channel;
+    private final int count;
+    private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+
+    record Entry(long offset, int length) {
+    }
+
+    private FileIndex(FileChannel channel, int count) {
+        this.channel = channel;
+        this.count = count;
+    }
+
+    static boolean isEnabled() {
+        return Boolean.parseBoolean(getProperty("fileIndex"));
+    }
+
+    static Path indexPath(Path dataPath) {
+        return dataPath.resolveSibling(dataPath.getFileName() + ".idx");
+    }
+
+    /**
+     * Opens the index of the given data file.
+     *
+     * @return the index, or {@code null} when indexing is disabled, the index does not exist or is out of date
+     */
+    static FileIndex open(Path dataPath) {
+        Path indexPath = indexPath(dataPath);
+        if (!isEnabled() || !Files.isRegularFile(indexPath)) {
+            return null;
+        }
+        try {
+            FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ);
+            if (channel.size() < HEADER_SIZE) {
+                channel.close();
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            if (header.getInt() == MAGIC
+                    && header.getLong() == Files.size(dataPath)
+                    && header.getLong() == Files.getLastModifiedTime(dataPath).toMillis()) {
+                int count = header.getInt();
+                if (channel.size() == HEADER_SIZE + (long) count * ENTRY_SIZE) {
+                    return new FileIndex(channel, count);
+                }
+            }
+            channel.close();
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the location of the entity, or {@code null} if the ID is not in the index
+     */
+    Entry find(int id) {
+        int low = 0;
+        int high = count - 1;
+        try {
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                entry.clear();
+                readFully(channel, entry, HEADER_SIZE + (long) middle * ENTRY_SIZE);
+                int middleId = entry.getInt();
+                if (middleId < id) {
+                    low = middle + 1;
+                } else if (middleId > id) {
+                    high = middle - 1;
+                } else {
+                    return new Entry(entry.getLong(), entry.getInt());
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new FileManageException("Error reading the index file.>>>" + e.getMessage());
+        }
+    }
+
+    /**
+     * Looks up every ID key of the container in the index of the data file and hands the bytes of each
+     * region found to the consumer, together with the ID. IDs missing from the index are left untouched.
+     *
+     * @return {@code false} when there is no up-to-date index, so the caller has to fall back to a full read
+     */
+    static boolean forEachRegion(Path dataPath, Map<?, ?> dataContainer, ObjIntConsumer<byte[]> consumer) {
+        try (FileIndex index = open(dataPath)) {
+            if (index == null) {
+                return false;
+            }
+            for (Object key : List.copyOf(dataContainer.keySet())) {
+                if (key instanceof Integer id) {
+                    Entry entry = index.find(id);
+                    if (entry != null) {
+                        consumer.accept(readRegion(dataPath, entry), id);
+                    }
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new FileManageException("Error reading the index file.>>>" + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the index of the given data file, if any.
+     */
+    static void remove(Path dataPath) {
+        try {
+            Files.deleteIfExists(indexPath(dataPath));
+        } catch (IOException e) {
+            throw new FileManageException("Error deleting the index file.>>>" + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the bytes of the data file described by the entry.
+     */
+    static byte[] readRegion(Path dataPath, Entry entry) {
+        try (FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.READ)) {
+            ByteBuffer region = ByteBuffer.allocate(entry.length());
+            readFully(channel, region, entry.offset());
+            return region.array();
+        } catch (IOException e) {
+            throw new FileManageException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of file at " + (position + buffer.position()));
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Collects the entries of an index while a data file is written or scanned.
+     */
+    static class Builder {
+        private int[] ids = new int[1024];
+        private long[] offsets = new long[1024];
+        private int[] lengths = new int[1024];
+        private int size = 0;
+
+        void add(int id, long offset, int length) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            ids[size] = id;
+            offsets[size] = offset;
+            lengths[size] = length;
+            size++;
+        }
+
+        /**
+         * Writes the index of the given data file, which must already be complete and closed.
+         */
+        void write(Path dataPath) {
+            Path indexPath = indexPath(dataPath);
+            try {
+                Integer[] order = new Integer[size];
+                Arrays.setAll(order, i -> i);
+                Arrays.sort(order, (a, b) -> Integer.compare(ids[a], ids[b]));
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath)))) {
+                    out.writeInt(MAGIC);
+                    out.writeLong(Files.size(dataPath));
+                    out.writeLong(Files.getLastModifiedTime(dataPath).toMillis());
+                    out.writeInt(size);
+                    for (int i : order) {
+                        out.writeInt(ids[i]);
+                        out.writeLong(offsets[i]);
+                        out.writeInt(lengths[i]);
+                    }
+                }
+            } catch (IOException e) {
+                throw new FileManageException("Error writing the index file.>>>" + e.getMessage());
+            }
+        }
+    }
+}
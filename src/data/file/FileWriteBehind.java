@@ -0,0 +1,198 @@
+package data.file;
+
+import data.IntSortedMap;
+import exceptions.FileManageException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static main.principal.getProperty;
+
+/**
+ * Writes data files atomically and, when {@code fileWriteBehind} is enabled, off the calling thread.
+ * <p>
+ * Every write goes to a temporary sibling file which is forced to disk and then atomically renamed over
+ * the target, so a crash in the middle of a write never leaves a half-written file behind. In
+ * write-behind mode the writes run on one background thread; a save requested while an earlier save of
+ * the same file is still queued replaces it, so consecutive saves are coalesced into one write.
+ * A failed background write is kept per target and reported only for that file: by the next save of
+ * it, by the next {@link #flush(Path)} of it, e.g. before it is read, or by {@link #flush()} on shutdown.
+ * @author SIN
+ */
+public class FileWriteBehind {
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "file-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final HashMap<Path, PendingWrite> PENDING = new HashMap<>();
+    private static final ConcurrentHashMap<Path, Exception> FAILURES = new ConcurrentHashMap<>();
+
+    /**
+     * Writes the complete content of a file to the given path.
+     */
+    @FunctionalInterface
+    interface FileContent {
+        void writeTo(Path file) throws IOException;
+    }
+
+    private record PendingWrite(FileContent content, Runnable afterCommit) {
+    }
+
+    private FileWriteBehind() {
+    }
+
+    static boolean isEnabled() {
+        return Boolean.parseBoolean(getProperty("fileWriteBehind"));
+    }
+
+    /**
+     * Takes a shallow copy of a map container, so a write running later is not affected by changes made
+     * to the container in the meantime. Entities are replaced rather than mutated once stored.
+     */
+    @SuppressWarnings("unchecked")
+    static <U> U snapshot(U dataContainer) {
+        if (isEnabled() && dataContainer instanceof IntSortedMap<?> map) {
+            return (U) map.copy();
+        }
+        if (isEnabled() && dataContainer instanceof TreeMap<?, ?> map) {
+            return (U) new TreeMap<>(map);
+        }
+        return dataContainer;
+    }
+
+    /**
+     * Replaces the target with the given content atomically, right away or on the background writer.
+     * The new write is queued even when an earlier background write of the target failed; that failure
+     * is then reported to the caller, which still has the changes to save again.
+     *
+     * @param target the data file
+     * @param content writes the new content of the file to the path it is given
+     * @param afterCommit runs once the new content is in place, e.g. to rebuild the file's index
+     * @throws FileManageException if the previous background write of the target failed
+     */
+    static void write(Path target, FileContent content, Runnable afterCommit) {
+        if (!isEnabled()) {
+            writeAtomically(target, content);
+            afterCommit.run();
+            return;
+        }
+        Path key = key(target);
+        synchronized (PENDING) {
+            if (PENDING.put(key, new PendingWrite(content, afterCommit)) == null) {
+                WRITER.execute(() -> runPending(key));
+            }
+        }
+        throwFailure(key);
+    }
+
+    /**
+     * Waits for every queued write to finish, which includes the writes of the target.
+     *
+     * @throws FileManageException if a background write of the target failed since it was last reported
+     */
+    public static void flush(Path target) {
+        awaitWriter();
+        throwFailure(key(target));
+    }
+
+    /**
+     * Waits for every queued write to finish, used before the application exits.
+     *
+     * @throws FileManageException listing every target whose background write failed and was not reported yet
+     */
+    public static void flush() {
+        awaitWriter();
+        List<String> failures = new ArrayList<>();
+        FAILURES.keySet().forEach(target -> {
+            Exception failure = FAILURES.remove(target);
+            if (failure != null) {
+                failures.add(failureMessage(target, failure));
+            }
+        });
+        if (!failures.isEmpty()) {
+            throw new FileManageException(String.join("\n", failures));
+        }
+    }
+
+    private static void awaitWriter() {
+        try {
+            WRITER.submit(() -> {
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new FileManageException(e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Identifies a target by its absolute, normalized path, so writes and flushes of the same file given
+     * through different paths meet.
+     */
+    private static Path key(Path target) {
+        return target.toAbsolutePath().normalize();
+    }
+
+    private static void throwFailure(Path target) {
+        Exception failure = FAILURES.remove(target);
+        if (failure != null) {
+            throw new FileManageException(failureMessage(target, failure));
+        }
+    }
+
+    private static String failureMessage(Path target, Exception failure) {
+        return failure instanceof FileManageException
+                ? failure.getMessage()
+                : "Error writing %s.>>>%s".formatted(target.getFileName(), failure.getMessage());
+    }
+
+    private static void runPending(Path target) {
+        PendingWrite pending;
+        synchronized (PENDING) {
+            pending = PENDING.remove(target);
+        }
+        try {
+            writeAtomically(target, pending.content());
+            pending.afterCommit().run();
+            FAILURES.remove(target);
+        } catch (RuntimeException e) {
+            FAILURES.put(target, e);
+        }
+    }
+
+    private static void writeAtomically(Path target, FileContent content) {
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            content.writeTo(temporary);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+            }
+            throw new FileManageException("Error writing %s.>>>%s".formatted(target.getFileName(), e.getMessage()));
+        } catch (RuntimeException e) {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+            }
+            throw e;
+        }
+    }
+}
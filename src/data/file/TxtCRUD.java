@@ -1,24 +1,45 @@
 package data.file;
 
+import Interface.EntityCursor;
 import Interface.GeneralCRUD;
 import Interface.ParserCallBack;
+import Interface.VerifiedEntity;
 import data.DataOperation;
+import data.ParsingCursor;
 import exceptions.FileManageException;
 import model.DataInfo;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Stream;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static main.principal.getProperty;
 
 /**
  * @author SIN
  */
 @SuppressWarnings("unused")
 public class TxtCRUD implements GeneralCRUD<DataInfo> {
+    /** Heap buffer each reading thread reuses for its chunks, grown to the largest chunk it has read. */
+    private static final ThreadLocal<ByteBuffer> CHUNK_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(0));
     private Path path;
     private final DataInfo dataInfo;
 
@@ -41,28 +62,277 @@ public class TxtCRUD implements GeneralCRUD<DataInfo> {
         path = null;
     }
 
+    @Override
+    public boolean isReusable() {
+        return true;
+    }
+
+    /**
+     * Reads the file through newline-aligned chunks of {@code txtChunkSize} bytes.
+     * When the container is a {@code TreeMap}, the chunks are parsed in parallel on the common
+     * fork-join pool, each into its own map, and merged into the container in file order.
+     * A compressed file is decompressed and parsed line by line instead.
+     * A SEARCH only reads the requested lines when the file has an up-to-date {@code FileIndex}.
+     */
     @Override
     @SuppressWarnings("unchecked")
     public <R, U> GeneralCRUD<DataInfo> read(ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
-        try(Stream<String> stream = Files.lines(path)) {
-            stream.forEach(line -> parser.parse((R) line, dataOperation, dataContainer));
+        FileWriteBehind.flush(path);
+        if(dataOperation == DataOperation.SEARCH && dataContainer instanceof Map<?, ?> ids
+                && FileIndex.forEachRegion(path, ids, (line, _) -> parser.parse((R) new String(line, StandardCharsets.UTF_8), dataOperation, dataContainer))){
+            return this;
+        }
+        if(isCompressed()){
+            try(BufferedReader reader = openCompressed()) {
+                reader.lines()
+                        .filter(line -> !line.isBlank())
+                        .forEach(line -> parser.parse((R) line, dataOperation, dataContainer));
+            } catch (IOException | UncheckedIOException e) {
+                throw new FileManageException("Error reading this txt file.>>>" + e.getMessage());
+            }
+            return this;
+        }
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<long[]> chunks = splitChunks(channel);
+            if(dataContainer instanceof TreeMap<?, ?> treeMap){
+                List<TreeMap<Object, Object>> parsedChunks = chunks.parallelStream()
+                        .map(chunk -> {
+                            TreeMap<Object, Object> parsedChunk = new TreeMap<>();
+                            parseChunk(channel, chunk, parser, dataOperation, (U) parsedChunk);
+                            return parsedChunk;
+                        })
+                        .toList();
+                parsedChunks.forEach(((TreeMap<Object, Object>) treeMap)::putAll);
+            }else{
+                chunks.forEach(chunk -> parseChunk(channel, chunk, parser, dataOperation, dataContainer));
+            }
         } catch (IOException e) {
             throw new FileManageException("Error reading this txt file.>>>" + e.getMessage());
         }
         return this;
     }
 
+    /**
+     * Streams the file chunk by chunk. Up to one chunk per available core is parsed ahead on the
+     * common fork-join pool while the current one is consumed, so memory stays bounded by the
+     * number of chunks in flight. A compressed file is streamed line by line.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> EntityCursor<VerifiedEntity> cursor(ParserCallBack<R, TreeMap<Integer, VerifiedEntity>> parser) {
+        FileWriteBehind.flush(path);
+        if(isCompressed()){
+            try {
+                BufferedReader reader = openCompressed();
+                Iterator<?> lines = reader.lines().filter(line -> !line.isBlank()).iterator();
+                return new ParsingCursor<>((Iterator<R>) lines, parser, reader);
+            } catch (IOException e) {
+                throw new FileManageException("Error reading this txt file.>>>" + e.getMessage());
+            }
+        }
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            Iterator<long[]> chunks = splitChunks(channel).iterator();
+            ArrayDeque<ForkJoinTask<TreeMap<Integer, VerifiedEntity>>> parsing = new ArrayDeque<>();
+            Runnable submitNext = () -> {
+                long[] chunk = chunks.next();
+                parsing.addLast(ForkJoinPool.commonPool().submit(() -> {
+                    TreeMap<Integer, VerifiedEntity> parsedChunk = new TreeMap<>();
+                    parseChunk(channel, chunk, parser, DataOperation.READ, parsedChunk);
+                    return parsedChunk;
+                }));
+            };
+            int parallelism = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+            for(int i = 0; i < parallelism && chunks.hasNext(); i++){
+                submitNext.run();
+            }
+            Iterator<TreeMap<Integer, VerifiedEntity>> parsedChunks = new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return !parsing.isEmpty();
+                }
+
+                @Override
+                public TreeMap<Integer, VerifiedEntity> next() {
+                    if(parsing.isEmpty()){
+                        throw new NoSuchElementException();
+                    }
+                    TreeMap<Integer, VerifiedEntity> parsedChunk = parsing.pollFirst().join();
+                    if(chunks.hasNext()){
+                        submitNext.run();
+                    }
+                    return parsedChunk;
+                }
+            };
+            return new ParsingCursor<>(parsedChunks, (parsedChunk, _, buffer) -> buffer.putAll(parsedChunk), () -> {
+                parsing.forEach(task -> task.cancel(true));
+                channel.close();
+            });
+        } catch (IOException e) {
+            throw new FileManageException("Error reading this txt file.>>>" + e.getMessage());
+        }
+    }
+
+    /**
+     * Splits the file into chunks of about {@code txtChunkSize} bytes, each ending right after a line break
+     * (or at the end of the file), so that no line is shared between two chunks.
+     *
+     * @return the {@code [start, end)} byte offsets of every chunk, in file order
+     */
+    private List<long[]> splitChunks(FileChannel channel) throws IOException {
+        long chunkSize = Long.parseLong(getProperty("txtChunkSize"));
+        long size = channel.size();
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = 0;
+        while(start < size){
+            long end = Math.min(start + chunkSize, size);
+            boolean aligned = end == size;
+            while(!aligned){
+                probe.clear();
+                int read = channel.read(probe, end);
+                if(read <= 0){
+                    end = size;
+                    break;
+                }
+                for(int i = 0; i < read; i++){
+                    if(probe.get(i) == '\n'){
+                        end += i + 1;
+                        aligned = true;
+                        break;
+                    }
+                }
+                if(!aligned){
+                    end += read;
+                    aligned = end >= size;
+                }
+            }
+            chunks.add(new long[]{start, Math.min(end, size)});
+            start = Math.min(end, size);
+        }
+        return chunks;
+    }
+
+    /**
+     * Reads one chunk of the file with positional reads into the calling thread's pooled buffer, decodes it
+     * as UTF-8 and hands every non-blank line to the parser. The chunk is not memory-mapped, so no mapping
+     * outlives the read and keeps the file from being replaced on Windows.
+     */
+    @SuppressWarnings("unchecked")
+    private static <R, U> void parseChunk(FileChannel channel, long[] chunk, ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
+        String text;
+        try {
+            int length = (int) (chunk[1] - chunk[0]);
+            ByteBuffer buffer = CHUNK_BUFFER.get();
+            if(buffer.capacity() < length){
+                buffer = ByteBuffer.allocate(length);
+                CHUNK_BUFFER.set(buffer);
+            }
+            buffer.clear().limit(length);
+            while(buffer.hasRemaining()){
+                if(channel.read(buffer, chunk[0] + buffer.position()) < 0){
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+            text = new String(buffer.array(), 0, length, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new FileManageException("Error reading this txt file.>>>" + e.getMessage());
+        }
+        int lineStart = 0;
+        while(lineStart < text.length()){
+            int lineEnd = text.indexOf('\n', lineStart);
+            if(lineEnd < 0){
+                lineEnd = text.length();
+            }
+            int contentEnd = lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if(contentEnd > lineStart && !text.substring(lineStart, contentEnd).isBlank()){
+                parser.parse((R) text.substring(lineStart, contentEnd), dataOperation, dataContainer);
+            }
+            lineStart = lineEnd + 1;
+        }
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <R, U> GeneralCRUD<DataInfo> update(ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
+        int bufferSize = Integer.parseInt(getProperty("txtWriteBufferSize"));
+        FileCompression compression = FileCompression.of(dataInfo, path);
+        Path target = path;
+        U snapshot = FileWriteBehind.snapshot(dataContainer);
+        FileWriteBehind.write(target, file -> {
+            try(Writer writer = compression == FileCompression.NONE
+                    ? new BufferedWriter(Channels.newWriter(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), StandardCharsets.UTF_8), bufferSize)
+                    : new BufferedWriter(new OutputStreamWriter(compression.compress(new BufferedOutputStream(Files.newOutputStream(file), bufferSize)), StandardCharsets.UTF_8), bufferSize)) {
+                parser.parse((R) writer, dataOperation, snapshot);
+            }
+        }, () -> {
+            if(FileIndex.isEnabled() && compression == FileCompression.NONE){
+                indexLines(target).write(target);
+            }else{
+                FileIndex.remove(target);
+            }
+        });
+        return this;
+    }
+
+    private boolean isCompressed() {
         try {
-            List<String> lines = new ArrayList<>();
-            parser.parse((R)lines, dataOperation, dataContainer);
-            Files.write(path, lines);
+            return FileCompression.isCompressed(path);
+        } catch (IOException e) {
+            throw new FileManageException("Error reading this txt file.>>>" + e.getMessage());
+        }
+    }
+
+    private BufferedReader openCompressed() throws IOException {
+        return new BufferedReader(new InputStreamReader(FileCompression.open(path), StandardCharsets.UTF_8), Integer.parseInt(getProperty("txtWriteBufferSize")));
+    }
+
+    /**
+     * Scans the written file once and records the byte offset and length of every line, without its
+     * line separator, keyed by the ID found before its first {@code ';'}.
+     */
+    private static FileIndex.Builder indexLines(Path path) {
+        FileIndex.Builder index = new FileIndex.Builder();
+        try(InputStream in = new BufferedInputStream(Files.newInputStream(path), Integer.parseInt(getProperty("txtWriteBufferSize")))) {
+            long position = 0;
+            long lineStart = 0;
+            int id = 0;
+            boolean negative = false;
+            boolean readingId = true;
+            boolean hasId = false;
+            int previous = -1;
+            int b;
+            while((b = in.read()) != -1){
+                if(b == '\n'){
+                    if(hasId){
+                        index.add(id, lineStart, (int) (position - lineStart - (previous == '\r' ? 1 : 0)));
+                    }
+                    lineStart = position + 1;
+                    id = 0;
+                    negative = false;
+                    readingId = true;
+                    hasId = false;
+                }else if(readingId){
+                    if(b >= '0' && b <= '9'){
+                        id = id * 10 + (b - '0');
+                    }else if(b == '-' && position == lineStart){
+                        negative = true;
+                    }else{
+                        readingId = false;
+                        hasId = b == ';' && position > lineStart;
+                        id = negative ? -id : id;
+                    }
+                }
+                previous = b;
+                position++;
+            }
+            if(hasId){
+                index.add(id, lineStart, (int) (position - lineStart - (previous == '\r' ? 1 : 0)));
+            }
         }catch (IOException e){
-            throw new FileManageException("Error writing this txt file.>>>" + e.getMessage());
+            throw new FileManageException("Error indexing this txt file.>>>" + e.getMessage());
         }
-        return this;
+        return index;
     }
 
 }
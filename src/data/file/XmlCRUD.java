@@ -1,8 +1,11 @@
 package data.file;
 
+import Interface.EntityCursor;
 import Interface.GeneralCRUD;
 import Interface.ParserCallBack;
+import Interface.VerifiedEntity;
 import data.DataOperation;
+import data.ParsingCursor;
 import exceptions.FileManageException;
 import model.DataInfo;
 import org.w3c.dom.Document;
@@ -10,19 +13,32 @@ import org.w3c.dom.Element;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import java.io.ByteArrayInputStream;
-import java.io.File;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static main.principal.getProperty;
 
 /**
  * @author SIN
  */
 @SuppressWarnings("unused")
 public class XmlCRUD implements GeneralCRUD<DataInfo> {
+    private static final Pattern ID_ATTRIBUTE = Pattern.compile("\\bid\\s*=\\s*[\"'](-?\\d+)[\"']");
     private File file;
     private String stringXML;
     private boolean parseRawXML = false;
@@ -55,15 +71,38 @@ public class XmlCRUD implements GeneralCRUD<DataInfo> {
         file = null;
     }
 
+    /**
+     * Parses the whole document, except for a SEARCH on a file with an up-to-date {@code FileIndex},
+     * where only the {@code <player>} elements of the requested IDs are read and parsed.
+     */
     @Override
     @SuppressWarnings("unchecked")
     public <R, U> GeneralCRUD<DataInfo> read(ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
+        if(!parseRawXML){
+            FileWriteBehind.flush(file.toPath());
+        }
+        if(!parseRawXML && dataOperation == DataOperation.SEARCH && dataContainer instanceof Map<?, ?> ids
+                && FileIndex.forEachRegion(file.toPath(), ids, (player, _) -> parser.parse((R) parsePlayerFragment(player), dataOperation, dataContainer))){
+            return this;
+        }
+        if(readMode() == XmlReadMode.STREAMING){
+            try(XmlStream stream = openStream()) {
+                while(nextPlayer(stream.reader())){
+                    parser.parse((R) stream.reader(), dataOperation, dataContainer);
+                }
+            } catch (IOException | XMLStreamException e) {
+                throw new FileManageException(e.getMessage());
+            }
+            return this;
+        }
         Element element;
         try {
             if(parseRawXML){
                 element = parseStringXml(stringXML);
             }else{
-                element = readXml(file);
+                try(InputStream in = FileCompression.open(file.toPath())) {
+                    element = readXml(in);
+                }
             }
             if (!element.hasChildNodes()) {
                 return this;
@@ -75,85 +114,205 @@ public class XmlCRUD implements GeneralCRUD<DataInfo> {
         return this;
     }
 
+    /**
+     * Streams the document through an {@code XmlElementWriter} over a buffered file channel, indented
+     * when {@code xmlPrettyPrint} is enabled, instead of building a DOM and transforming it. The output
+     * is compressed as chosen by {@code FileCompression.of}.
+     */
     @Override
     @SuppressWarnings("unchecked")
     public <R, U> GeneralCRUD<DataInfo> update(ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
+        boolean prettyPrint = Boolean.parseBoolean(getProperty("xmlPrettyPrint"));
+        int bufferSize = Integer.parseInt(getProperty("xmlWriteBufferSize"));
+        Path target = file.toPath();
+        FileCompression compression = FileCompression.of(dataInfo, target);
+        U snapshot = FileWriteBehind.snapshot(dataContainer);
+        FileWriteBehind.write(target, temporary -> {
+            Writer out = compression == FileCompression.NONE
+                    ? Channels.newWriter(FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), StandardCharsets.UTF_8)
+                    : new OutputStreamWriter(compression.compress(new BufferedOutputStream(Files.newOutputStream(temporary), bufferSize)), StandardCharsets.UTF_8);
+            try(XmlElementWriter writer = new XmlElementWriter(new BufferedWriter(out, bufferSize), prettyPrint)) {
+                parser.parse((R) writer, null, snapshot);
+            }
+        }, () -> {
+            if(FileIndex.isEnabled() && compression == FileCompression.NONE){
+                indexPlayers(target).write(target);
+            }else{
+                FileIndex.remove(target);
+            }
+        });
+        return this;
+    }
+
+    private static Element parsePlayerFragment(byte[] player) {
         try {
-            Document document = createDocument();
-            parser.parse((R)document,null, dataContainer);
-            writeXml(document, file);
+            return parseStringXml("<Player>" + new String(player, StandardCharsets.UTF_8) + "</Player>");
         } catch (Exception e) {
             throw new FileManageException(e.getMessage());
         }
-        return this;
     }
 
-
     /**
-     * Reads and parses an XML file into an {@code Element} object representing the root element of the document.
-     *
-     * @param file the XML file to be read and parsed
-     * @return the root element of the parsed XML document
-     * @throws Exception if an error occurs while reading or parsing the XML file, such as file not found or invalid XML structure
+     * Scans the written file once and records the byte offset and length of every
+     * {@code <player id="...">...</player>} element, keyed by its ID.
      */
-    public static Element readXml(File file) throws Exception {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document document = builder.parse(file);
-        document.getDocumentElement().normalize();
-        return document.getDocumentElement();
+    private static FileIndex.Builder indexPlayers(Path path) {
+        FileIndex.Builder index = new FileIndex.Builder();
+        byte[] openTag = "<player".getBytes(StandardCharsets.US_ASCII);
+        byte[] closeTag = "</player>".getBytes(StandardCharsets.US_ASCII);
+        try(InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            long position = 0;
+            long start = 0;
+            int matched = 0;
+            Integer id = null;
+            StringBuilder attributes = null;
+            boolean afterName = false;
+            int b;
+            while((b = in.read()) != -1){
+                position++;
+                if(attributes != null){
+                    if(b == '>'){
+                        id = attributes.toString().endsWith("/") ? null : parseIdAttribute(attributes.toString());
+                        attributes = null;
+                        matched = 0;
+                    }else{
+                        attributes.append((char) b);
+                    }
+                }else if(afterName){
+                    afterName = false;
+                    if(Character.isWhitespace(b)){
+                        attributes = new StringBuilder();
+                    }else{
+                        matched = b == openTag[0] ? 1 : 0;
+                    }
+                }else if(id == null){
+                    matched = b == openTag[matched] ? matched + 1 : b == openTag[0] ? 1 : 0;
+                    if(matched == openTag.length){
+                        start = position - openTag.length;
+                        afterName = true;
+                        matched = 0;
+                    }
+                }else{
+                    matched = b == closeTag[matched] ? matched + 1 : b == closeTag[0] ? 1 : 0;
+                    if(matched == closeTag.length){
+                        index.add(id, start, (int) (position - start));
+                        id = null;
+                        matched = 0;
+                    }
+                }
+            }
+        }catch (IOException e){
+            throw new FileManageException("Error indexing this xml file.>>>" + e.getMessage());
+        }
+        return index;
     }
 
-    public static Element parseStringXml(String rawXML) throws Exception {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document document = builder.parse(new ByteArrayInputStream(rawXML.getBytes()));
-        document.getDocumentElement().normalize();
-        return document.getDocumentElement();
+    private static Integer parseIdAttribute(String attributes) {
+        Matcher matcher = ID_ATTRIBUTE.matcher(attributes);
+        return matcher.find() ? Integer.valueOf(matcher.group(1)) : null;
     }
 
+
     /**
-     * Writes the given {@code Document} to the specified file as an XML file. The method ensures
-     * the output is formatted with indentation for better readability. In case of errors during
-     * the transformation or file writing process, it throws a {@code FileManageException}.
-     *
-     * @param document the {@code Document} object to be written to the XML file
-     * @param file the {@code File} object representing the target XML file
-     * @throws FileManageException if an error occurs during the XML writing process, such as
-     *                              transformation or file output errors
+     * In {@code STREAMING} mode, hands the StAX reader itself to the parser once per {@code <player>},
+     * positioned on its start tag, so only the player being parsed is in memory. In {@code DOM} mode
+     * the document is read whole and iterated.
      */
-    public static void writeXml(Document document, File file) {
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> EntityCursor<VerifiedEntity> cursor(ParserCallBack<R, TreeMap<Integer, VerifiedEntity>> parser) {
+        if(readMode() == XmlReadMode.DOM){
+            return GeneralCRUD.super.cursor(parser);
+        }
+        if(!parseRawXML){
+            FileWriteBehind.flush(file.toPath());
+        }
         try {
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            DOMSource source = new DOMSource(document);
-            StreamResult result = new StreamResult(file);
-            transformer.transform(source, result);
-        } catch (Exception e) {
+            XmlStream stream = openStream();
+            Iterator<R> players = new Iterator<>() {
+                private boolean positioned = false;
+
+                @Override
+                public boolean hasNext() {
+                    if (!positioned) {
+                        positioned = nextPlayer(stream.reader());
+                    }
+                    return positioned;
+                }
+
+                @Override
+                public R next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    positioned = false;
+                    return (R) stream.reader();
+                }
+            };
+            return new ParsingCursor<>(players, parser, stream);
+        } catch (IOException | XMLStreamException e) {
             throw new FileManageException(e.getMessage());
         }
     }
 
+    private XmlReadMode readMode() {
+        return dataInfo.getXmlReadMode() != null ? dataInfo.getXmlReadMode() : XmlReadMode.valueOf(getProperty("xmlReadMode"));
+    }
+
+    private record XmlStream(InputStream inputStream, XMLStreamReader reader) implements AutoCloseable {
+        @Override
+        public void close() throws IOException, XMLStreamException {
+            try (inputStream) {
+                reader.close();
+            }
+        }
+    }
+
+    private XmlStream openStream() throws IOException, XMLStreamException {
+        InputStream inputStream = parseRawXML
+                ? new ByteArrayInputStream(stringXML.getBytes(StandardCharsets.UTF_8))
+                : FileCompression.open(file.toPath());
+        try {
+            return new XmlStream(inputStream, XMLInputFactory.newInstance().createXMLStreamReader(inputStream));
+        } catch (XMLStreamException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
     /**
-     * Creates a new, empty {@code Document} object that can be used for building
-     * or manipulating XML structures programmatically. This method utilizes
-     * {@code DocumentBuilderFactory} and {@code DocumentBuilder} to instantiate the
-     * {@code Document} object. In case of failure during the document creation process,
-     * it throws a {@code FileManageException}.
+     * Advances the reader to the start tag of the next {@code <player>} element.
      *
-     * @return a new instance of {@code Document} representing an empty XML document
-     * @throws FileManageException if the document creation process fails due to
-     *                              configuration errors or internal exceptions
+     * @return {@code false} at the end of the document
+     * @throws FileManageException if the XML is malformed
      */
-    public static Document createDocument() {
+    private static boolean nextPlayer(XMLStreamReader reader) {
         try {
-            DocumentBuilderFactory documentFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder documentBuilder = documentFactory.newDocumentBuilder();
-            return documentBuilder.newDocument();
-        } catch (Exception e) {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "player".equals(reader.getLocalName())) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (XMLStreamException e) {
             throw new FileManageException(e.getMessage());
         }
     }
 
+    private static Element readXml(InputStream in) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        Document document = builder.parse(in);
+        document.getDocumentElement().normalize();
+        return document.getDocumentElement();
+    }
+
+    public static Element parseStringXml(String rawXML) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        Document document = builder.parse(new ByteArrayInputStream(rawXML.getBytes()));
+        document.getDocumentElement().normalize();
+        return document.getDocumentElement();
+    }
+
 }
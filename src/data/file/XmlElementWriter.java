@@ -0,0 +1,147 @@
+package data.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+
+/**
+ * Writes an XML document element by element straight to a {@code Writer}, without building a DOM.
+ * <p>
+ * The output follows what the indenting {@code Transformer} used to produce: the same XML declaration,
+ * empty elements collapsed to {@code <name/>}, the same character escaping and, when pretty printing is
+ * enabled, one element per line indented by four spaces per level.
+ * @author SIN
+ */
+public class XmlElementWriter implements Closeable {
+    private static final String INDENT = "    ";
+    private final Writer writer;
+    private final boolean prettyPrint;
+    private final ArrayDeque<String> openElements = new ArrayDeque<>();
+    private final BitSet hasChildElements = new BitSet();
+    private boolean startTagOpen = false;
+
+    public XmlElementWriter(Writer writer, boolean prettyPrint) throws IOException {
+        this.writer = writer;
+        this.prettyPrint = prettyPrint;
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+    }
+
+    public XmlElementWriter startElement(String name) throws IOException {
+        closeStartTag();
+        int depth = openElements.size();
+        if (depth > 0) {
+            hasChildElements.set(depth - 1);
+        }
+        newLine(depth);
+        writer.write('<');
+        writer.write(name);
+        openElements.push(name);
+        hasChildElements.clear(depth);
+        startTagOpen = true;
+        return this;
+    }
+
+    public XmlElementWriter attribute(String name, String value) throws IOException {
+        if (!startTagOpen) {
+            throw new IllegalStateException("Attribute written outside of a start tag: " + name);
+        }
+        writer.write(' ');
+        writer.write(name);
+        writer.write("=\"");
+        escape(value, true);
+        writer.write('"');
+        return this;
+    }
+
+    public XmlElementWriter text(String text) throws IOException {
+        if (text != null && !text.isEmpty()) {
+            closeStartTag();
+            escape(text, false);
+        }
+        return this;
+    }
+
+    /**
+     * Writes an element holding only text, such as {@code <name>John Doe</name>}.
+     */
+    public XmlElementWriter textElement(String name, String text) throws IOException {
+        return startElement(name).text(text).endElement();
+    }
+
+    public XmlElementWriter endElement() throws IOException {
+        String name = openElements.pop();
+        if (startTagOpen) {
+            writer.write("/>");
+            startTagOpen = false;
+            return this;
+        }
+        int depth = openElements.size();
+        if (hasChildElements.get(depth)) {
+            newLine(depth);
+        }
+        writer.write("</");
+        writer.write(name);
+        writer.write('>');
+        return this;
+    }
+
+    /**
+     * Closes the elements left open and the underlying writer.
+     */
+    @Override
+    public void close() throws IOException {
+        try (writer) {
+            while (!openElements.isEmpty()) {
+                endElement();
+            }
+            if (prettyPrint) {
+                writer.write(System.lineSeparator());
+            }
+        }
+    }
+
+    private void closeStartTag() throws IOException {
+        if (startTagOpen) {
+            writer.write('>');
+            startTagOpen = false;
+        }
+    }
+
+    private void newLine(int depth) throws IOException {
+        if (prettyPrint) {
+            writer.write(System.lineSeparator());
+            for (int i = 0; i < depth; i++) {
+                writer.write(INDENT);
+            }
+        }
+    }
+
+    private void escape(String value, boolean attribute) throws IOException {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = switch (c) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '\r' -> "&#13;";
+                case '"' -> attribute ? "&quot;" : null;
+                case '\n' -> attribute ? "&#10;" : null;
+                case '\t' -> attribute ? "&#9;" : null;
+                default -> Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))
+                        ? "&#" + value.codePointAt(i) + ";" : null;
+            };
+            if (replacement != null) {
+                writer.write(value, start, i - start);
+                writer.write(replacement);
+                if (Character.isHighSurrogate(c)) {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        writer.write(value, start, value.length() - start);
+    }
+}
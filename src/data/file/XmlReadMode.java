@@ -0,0 +1,10 @@
+package data.file;
+
+/**
+ * How {@code XmlCRUD} reads a document: {@code DOM} parses the whole tree at once,
+ * {@code STREAMING} pulls one {@code <player>} at a time with a StAX reader.
+ * @author SIN
+ */
+public enum XmlReadMode {
+    DOM, STREAMING
+}
@@ -3,6 +3,9 @@ package data.http;
 import com.squareup.okhttp.*;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static main.principal.getProperty;
 
 /**
  *
@@ -13,10 +16,52 @@ import java.io.IOException;
 public class ApiRequests {
     public static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
 
+    private static OkHttpClient sharedClient;
+
     OkHttpClient client;
 
     public ApiRequests(){
-        client = new OkHttpClient();
+        client = getSharedClient();
+    }
+
+    /**
+     * Cliente compartido por todas las instancias, con pool de conexiones keep-alive y timeouts
+     * configurados en config.properties, para reutilizar las conexiones TCP entre peticiones.
+     * @return Cliente HTTP compartido.
+     */
+    private static synchronized OkHttpClient getSharedClient(){
+        if(sharedClient == null){
+            sharedClient = new OkHttpClient();
+            sharedClient.setConnectionPool(new ConnectionPool(
+                    Integer.parseInt(getProperty("httpMaxIdleConnections")),
+                    Long.parseLong(getProperty("httpKeepAlive"))));
+            sharedClient.setConnectTimeout(Long.parseLong(getProperty("httpConnectTimeout")), TimeUnit.MILLISECONDS);
+            sharedClient.setReadTimeout(Long.parseLong(getProperty("httpReadTimeout")), TimeUnit.MILLISECONDS);
+            sharedClient.setWriteTimeout(Long.parseLong(getProperty("httpWriteTimeout")), TimeUnit.MILLISECONDS);
+        }
+        return sharedClient;
+    }
+
+    /**
+     * Cierra las conexiones keep-alive del cliente compartido.
+     */
+    public static synchronized void shutdown(){
+        if(sharedClient != null){
+            sharedClient.getConnectionPool().evictAll();
+            sharedClient = null;
+        }
+    }
+
+    /**
+     * Ejecuta la peticion y cierra el cuerpo de la respuesta para que la conexion vuelva al pool.
+     * @param request Peticion a ejecutar.
+     * @return Cuerpo de la respuesta.
+     */
+    private String execute(Request request) throws IOException {
+        Response response = client.newCall(request).execute();
+        try (ResponseBody body = response.body()) {
+            return body.string();
+        }
     }
 
     /**
@@ -29,9 +74,7 @@ public class ApiRequests {
                 .url(url)
                 .build();
 
-        Response response = client.newCall(request).execute();
-
-        return response.body().string();
+        return execute(request);
     }
     
     public String getRequest(String url, String json) throws IOException{
@@ -41,9 +84,7 @@ public class ApiRequests {
                 .get()
                 .build();
 
-        Response response = client.newCall(request).execute();
-
-        return response.body().string();
+        return execute(request);
     }
 
     /**
@@ -60,8 +101,7 @@ public class ApiRequests {
                 .post(body)
                 .build();
 
-        Response response = client.newCall(request).execute();
-        return response.body().string();
+        return execute(request);
     }
     
     
@@ -72,9 +112,7 @@ public class ApiRequests {
                 .put(body)
                 .build();
 
-        Response response = client.newCall(request).execute();
-
-        return response.body().string();
+        return execute(request);
     }
 
     /**
@@ -93,8 +131,6 @@ public class ApiRequests {
                 .post(formBody)
                 .build();
 
-        Response response = client.newCall(request).execute();
-
-        return response.body().string();
+        return execute(request);
     }
 }
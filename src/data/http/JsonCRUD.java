@@ -46,6 +46,11 @@ public class JsonCRUD implements GeneralCRUD<DataInfo> {
     public void release() {
     }
 
+    @Override
+    public boolean isReusable() {
+        return true;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <R, U> GeneralCRUD<DataInfo> read(ParserCallBack<R, U> parser, DataOperation dataOperation, U dataContainer) {
@@ -1,16 +1,34 @@
 package exceptions;
 
+import data.ValidationReport;
+
 /**
  * Exception thrown to signal that data has been identified as corrupted or invalid.
  * This exception extends {@code RuntimeException} and can be used in scenarios
  * where data integrity issues are detected during runtime operations.
  * <p>
  * Use this exception in cases where corrupted or malformed data is encountered,
- * requiring explicit handling or propagation of error states.
+ * requiring explicit handling or propagation of error states. When a whole batch was validated,
+ * the exception carries its {@code ValidationReport}, so every invalid entity can be handled at once.
  * @author SIN
  */
 public class DataCorruptedException extends RuntimeException {
+    private final ValidationReport validationReport;
+
     public DataCorruptedException(String message) {
         super(message);
+        validationReport = null;
+    }
+
+    public DataCorruptedException(ValidationReport validationReport) {
+        super(validationReport.summary());
+        this.validationReport = validationReport;
+    }
+
+    /**
+     * @return the report of the rejected batch, or {@code null} if the exception does not come from a batch validation
+     */
+    public ValidationReport getValidationReport() {
+        return validationReport;
     }
 }
@@ -16,4 +16,8 @@ public class OperationException extends RuntimeException {
     public OperationException(String message) {
         super(message);
     }
+
+    public OperationException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -4,6 +4,8 @@ import GUI.LogStage;
 import Interface.EventListener;
 import Interface.ExceptionHandler;
 import Interface.VerifiedEntity;
+import data.IntSortedMap;
+import data.ValidationReport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,7 +16,7 @@ import java.util.*;
  */
 public class PlayerExceptionHandler implements ExceptionHandler {
     private static PlayerExceptionHandler INSTANCE = null;
-    private final List<EventListener<TreeMap<Integer, VerifiedEntity>>> listeners = new ArrayList<>();
+    private final List<EventListener<IntSortedMap<VerifiedEntity>>> listeners = new ArrayList<>();
     private static final Logger logger = LoggerFactory.getLogger(PlayerExceptionHandler.class);
     private final Map<Class<? extends Exception>, String> exceptionMessages = Map.of(
             ConfigErrorException.class,"Failed to read configuration.",
@@ -84,15 +86,29 @@ public class PlayerExceptionHandler implements ExceptionHandler {
                 .formatted(className, exceptionMessages.getOrDefault(e.getClass(), "Undefined exception occurred."), e.getMessage());
         logger.error(message);
         notifyLog(LogStage.FAIL, playerTextSubType[0] + "_fail");
+        if(e instanceof DataCorruptedException dataCorruptedException && dataCorruptedException.getValidationReport() != null){
+            handleValidationReport(dataCorruptedException.getValidationReport());
+        }
+    }
+
+    /**
+     * Reports how many entities of a rejected batch failed for each reason, followed by the first invalid IDs.
+     */
+    private void handleValidationReport(ValidationReport report){
+        report.countByReason().forEach((reason, count) -> {
+            logger.error("Invalid entities: {} x {}", count, reason);
+            notifyLog(LogStage.ERROR, "invalid_entities", "%d x %s".formatted(count, reason));
+        });
+        notifyLog(LogStage.ERROR, "invalid_entities", report.summary());
     }
 
     @Override
-    public void addListener(EventListener<TreeMap<Integer, VerifiedEntity>> listener){
+    public void addListener(EventListener<IntSortedMap<VerifiedEntity>> listener){
         listeners.add(listener);
     }
 
     private void notifyLog(LogStage stage, String... message){
-        for(EventListener<TreeMap<Integer, VerifiedEntity>> listener : listeners){
+        for(EventListener<IntSortedMap<VerifiedEntity>> listener : listeners){
             listener.onLog(stage, message);
         }
     }
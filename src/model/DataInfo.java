@@ -1,6 +1,8 @@
 package model;
 
 import data.database.SqlDialect;
+import data.file.FileCompression;
+import data.file.XmlReadMode;
 
 /**
  * @author SIN
@@ -8,7 +10,9 @@ import data.database.SqlDialect;
 public class DataInfo {
     private Object dataType;
     private SqlDialect dialect;
-    private String url, port, database, user, password, table, queryRead, queryADD, queryModify, queryDelete, querySearch;
+    private XmlReadMode xmlReadMode;
+    private FileCompression fileCompression;
+    private String url, port, database, user, password, table, queryRead, queryADD, queryModify, queryDelete, querySearch, queryFingerprint;
 
     public DataInfo() {
     }
@@ -33,6 +37,22 @@ public class DataInfo {
         this.dialect = dialect;
     }
 
+    public XmlReadMode getXmlReadMode() {
+        return xmlReadMode;
+    }
+
+    public void setXmlReadMode(XmlReadMode xmlReadMode) {
+        this.xmlReadMode = xmlReadMode;
+    }
+
+    public FileCompression getFileCompression() {
+        return fileCompression;
+    }
+
+    public void setFileCompression(FileCompression fileCompression) {
+        this.fileCompression = fileCompression;
+    }
+
     public String getUrl() {
         return url;
     }
@@ -120,4 +140,12 @@ public class DataInfo {
     public void setQuerySearch(String querySearch) {
         this.querySearch = querySearch;
     }
+
+    public String getQueryFingerprint() {
+        return queryFingerprint;
+    }
+
+    public void setQueryFingerprint(String queryFingerprint) {
+        this.queryFingerprint = queryFingerprint;
+    }
 }
@@ -40,6 +40,9 @@ public class Region implements Serializable, VerifiedEntity {
 
     @Override
     public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
         if (object == null || getClass() != object.getClass()) {
             return false;
         }
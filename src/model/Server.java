@@ -49,6 +49,9 @@ public class Server implements Serializable,VerifiedEntity {
 
     @Override
     public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
         if (object == null || getClass() != object.getClass()) {
             return false;
         }